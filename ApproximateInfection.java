@@ -0,0 +1,51 @@
+public class ApproximateInfection {
+	
+	/** The result of UserGraph.approximateLimitedInfection: how many users were infected, out of the 
+	 * n asked for, and how close that is to what an exact limited_infection would have infected. <p>
+	 * 
+	 * upperBound() is never less than the number of users an exact limited_infection would infect,
+	 * so infected() is off from the exact answer by at most errorBound(). If the search finished 
+	 * within its budget, or the bound shows nothing better exists, isOptimal() is true.
+	 */
+	
+	private final int target;
+	private final int infected;
+	private final int upperBound;
+	
+	ApproximateInfection(int target, int infected, int upperBound) {
+		this.target = target;
+		this.infected = infected;
+		this.upperBound = upperBound;
+	}
+	
+	//returns the n that was asked for
+	public int target() {
+		return target;
+	}
+	
+	//returns the number of users infected
+	public int infected() {
+		return infected;
+	}
+	
+	//returns an upper bound on the number of users an exact limited_infection would infect
+	public int upperBound() {
+		return upperBound;
+	}
+	
+	//returns whether no subset of CCs with at most n users has more users than were infected
+	public boolean isOptimal() {
+		return infected == upperBound;
+	}
+	
+	//returns the most users that the exact answer could have over infected()
+	public int errorBound() {
+		return upperBound - infected;
+	}
+	
+	//returns how many fewer users than n were infected
+	public int shortfall() {
+		return target - infected;
+	}
+	
+}
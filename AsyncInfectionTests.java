@@ -0,0 +1,146 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+public class AsyncInfectionTests {
+	
+	//adds a chain of users[0...] on version 1 to g
+	private static void chain(UserGraph g, User[] users, String prefix) {
+		for (int i = 0; i < users.length; i++) {
+			users[i] = new User(prefix + i, 1);
+			g.addUser(users[i]);
+			if (i > 0) {
+				g.addEdge(users[i - 1], users[i]);
+			}
+		}
+	}
+	
+	//testing that totalInfectionAsync infects the whole CC and reports the users walked
+	@Test
+	public void asyncTotalInfectionTest() throws Exception {
+		UserGraph g = new UserGraph();
+		User[] users = new User[5000];
+		chain(g, users, "u");
+		User other = new User("other", 1);
+		g.addUser(other);
+		
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		InfectionTask task = g.totalInfectionAsync(users[2500], 7, pool);
+		assertEquals(5000, (int) task.future().get());
+		pool.shutdown();
+		
+		assertEquals(5000, task.usersVisited());
+		assertEquals(5000, g.countVersion(7));
+		assertEquals(1, other.getSiteAccessed());
+	}
+	
+	//testing that limitedInfectionAsync infects the same number of users as limitedInfection
+	@Test
+	public void asyncLimitedInfectionTest() throws Exception {
+		UserGraph g = new UserGraph();
+		chain(g, new User[3], "a");
+		chain(g, new User[5], "b");
+		chain(g, new User[9], "c");
+		
+		InfectionTask task = g.limitedInfectionAsync(13, 7, Runnable::run);
+		assertTrue(task.isDone());
+		assertEquals(12, (int) task.future().get());
+		assertEquals(12, g.countVersion(7));
+		assertEquals(12, task.usersVisited());
+		assertTrue(task.dpRowsDone() > 0 && task.dpRowsDone() <= task.dpRows());
+	}
+	
+	//testing that perfectLimitedInfectionAsync completes with the exception the blocking one throws
+	@Test
+	public void asyncPerfectUnsupportedTest() throws InterruptedException {
+		UserGraph g = new UserGraph();
+		chain(g, new User[3], "a");
+		chain(g, new User[5], "b");
+		
+		InfectionTask task = g.perfectLimitedInfectionAsync(4, 7, Runnable::run);
+		try {
+			task.future().get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof UnsupportedOperationException);
+		}
+		assertFalse(task.cancel());
+		assertEquals(0, g.countVersion(7));
+	}
+	
+	//testing that a task cancelled before it runs leaves the graph alone
+	@Test
+	public void asyncCancelTest() {
+		UserGraph g = new UserGraph();
+		User[] users = new User[10];
+		chain(g, users, "u");
+		List<Runnable> queued = new ArrayList<Runnable>();
+		
+		InfectionTask task = g.limitedInfectionAsync(10, 7, queued::add);
+		assertTrue(task.cancel());
+		queued.get(0).run();
+		
+		assertTrue(task.isCancelled());
+		assertEquals(0, g.countVersion(7));
+		try {
+			task.future().join();
+			fail();
+		} catch (CancellationException e) {
+			//expected
+		}
+	}
+	
+	//testing that a finished task can't be cancelled, so its infection stays applied
+	@Test
+	public void asyncCancelAfterApplyTest() {
+		UserGraph g = new UserGraph();
+		User[] users = new User[10];
+		chain(g, users, "u");
+		
+		InfectionTask task = g.totalInfectionAsync(users[0], 7, Runnable::run);
+		assertFalse(task.cancel());
+		assertFalse(task.isCancelled());
+		assertEquals(10, g.countVersion(7));
+	}
+	
+	//testing that completing a future handed out by the task, as a timeout would, leaves it running
+	@Test
+	public void asyncTimeoutTest() throws Exception {
+		UserGraph g = new UserGraph();
+		User[] users = new User[10];
+		chain(g, users, "u");
+		List<Runnable> queued = new ArrayList<Runnable>();
+		
+		InfectionTask task = g.totalInfectionAsync(users[0], 7, queued::add);
+		CompletableFuture<Integer> timedOut = task.future();
+		timedOut.completeExceptionally(new TimeoutException());
+		assertFalse(task.isDone());
+		
+		queued.get(0).run();
+		assertTrue(timedOut.isCompletedExceptionally());
+		assertEquals(10, (int) task.future().get());
+		assertEquals(10, g.countVersion(7));
+		assertFalse(task.cancel());
+	}
+	
+	//testing bad arguments
+	@Test(expected = IllegalArgumentException.class)
+	public void asyncNegativeNTest() {
+		new UserGraph().limitedInfectionAsync(-1, 7, Runnable::run);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void asyncNullExecutorTest() {
+		new UserGraph().limitedInfectionAsync(1, 7, null);
+	}
+
+}
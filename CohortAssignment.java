@@ -0,0 +1,77 @@
+public class CohortAssignment {
+	
+	/** The result of UserGraph.assignCohorts: for each of k experiments, the site version it was 
+	 * rolled out on, the number of users it asked for, the number it got, and the CCs it got them 
+	 * from. No CC is given to more than one experiment. <p>
+	 * 
+	 * Splitting CCs between several targets is a multiple subset-sum problem, which the assignment
+	 * only solves heuristically, so it also reports bounds on how far from optimal it can be. 
+	 * upperBound(i) is the most experiment i could get if it were run on its own, and 
+	 * totalUpperBound() is the most users any assignment could cover without any experiment going 
+	 * over its target.
+	 */
+	
+	private final int[] targets;
+	private final int[] versions;
+	private final int[] achieved;
+	private final int[] upperBounds;
+	private final int totalUpperBound;
+	
+	//chosen[i] holds a user from each CC given to experiment i
+	private final User[][] chosen;
+	
+	CohortAssignment(int[] targets, int[] versions, int[] achieved, int[] upperBounds, 
+			int totalUpperBound, User[][] chosen) {
+		this.targets = targets;
+		this.versions = versions;
+		this.achieved = achieved;
+		this.upperBounds = upperBounds;
+		this.totalUpperBound = totalUpperBound;
+		this.chosen = chosen;
+	}
+	
+	//returns the number of experiments
+	public int numCohorts() {
+		return targets.length;
+	}
+	
+	//returns the number of users experiment i asked for
+	public int target(int i) {
+		return targets[i];
+	}
+	
+	//returns the site version experiment i was rolled out on
+	public int version(int i) {
+		return versions[i];
+	}
+	
+	//returns the number of users given to experiment i
+	public int achieved(int i) {
+		return achieved[i];
+	}
+	
+	//returns the most users experiment i could have been given if it were the only experiment
+	public int upperBound(int i) {
+		return upperBounds[i];
+	}
+	
+	//returns the number of users given to all the experiments
+	public int totalAchieved() {
+		int total = 0;
+		for (int a : achieved) {
+			total += a;
+		}
+		return total;
+	}
+	
+	//returns the most users that any assignment could give to all the experiments
+	public int totalUpperBound() {
+		return totalUpperBound;
+	}
+	
+	//returns a user from each CC given to experiment i
+	public User[] components(int i) {
+		return chosen[i].clone();
+	}
+	
+}
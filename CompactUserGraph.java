@@ -0,0 +1,652 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+public class CompactUserGraph {
+	
+	/** An immutable snapshot of a UserGraph in compressed sparse row (CSR) form. Each user is given a
+	 * dense index in 0...size()-1 and the neighbors of user i are stored as indices in 
+	 * targets[offsets[i]]...targets[offsets[i+1]-1]. This costs one int per user plus one int per
+	 * edge endpoint, and traversals walk two flat arrays instead of chasing HashSet entries around 
+	 * the heap. The snapshot doesn't see users or edges added to the original graph after it was 
+	 * taken. Site versions are kept in a SiteVersionColumn by dense index. A snapshot of a UserGraph
+	 * shares the graph's column, so infections on either one are seen by both and by the users. 
+	 * Since the edges never change, the CCs are only found once and then kept.
+	 */
+	
+	//users by dense index. a graph loaded by GraphSnapshot creates each user when it's first needed
+	private final User[] users;
+	
+	//dense index of each user, keyed by userID
+	private final UserIdTable ids;
+	
+	//offsets[i] is where user i's neighbors start in targets, and offsets[size()] = targets.length
+	private final int[] offsets;
+	
+	//neighbor indices of all users, stored back to back
+	private final int[] targets;
+	
+	//site version of every user by dense index
+	private final SiteVersionColumn versions;
+	
+	/* scratch space shared by every serial traversal, allocated by the first one. visited[i] == epoch
+	if user i has been visited by the current traversal, and each traversal bumps epoch instead of 
+	clearing visited, so repeated infections don't allocate anything. this means two serial 
+	infections can't run on the same snapshot at once */
+	private int[] stack;
+	private int[] visited;
+	private int epoch;
+	
+	//null until the CCs are first needed, then {a user in each CC, the size of each CC}
+	private volatile int[][] components;
+	
+	//freezes the current users and edges of g
+	public CompactUserGraph(UserGraph g) {
+		if (g == null) {
+			throw new NullPointerException();
+		}
+		int n = g.size();
+		users = new User[n];
+		ids = new UserIdTable(n);
+		versions = g.shareVersions();
+		
+		//keep g's dense indices and count the number of edge endpoints
+		int numTargets = 0;
+		for (int i = 0; i < n; i++) {
+			users[i] = g.getUser(i);
+			ids.intern(users[i].getUserID());
+			numTargets += users[i].getNeighbors().size();
+		}
+		
+		//lay out each user's neighbors consecutively
+		offsets = new int[n + 1];
+		targets = new int[numTargets];
+		int t = 0;
+		for (int i = 0; i < n; i++) {
+			offsets[i] = t;
+			for (User v : users[i].getNeighbors()) {
+				targets[t++] = g.indexOf(v);
+			}
+		}
+		offsets[n] = t;
+	}
+	
+	//wraps already built CSR arrays, ids[i] must be the ID of users[i]
+	private CompactUserGraph(User[] users, UserIdTable ids, int[] offsets, int[] targets) {
+		this.users = users;
+		this.ids = ids;
+		this.offsets = offsets;
+		this.targets = targets;
+		
+		//the users' site versions move into a column of their own
+		versions = new SiteVersionColumn(users.length);
+		for (User u : users) {
+			u.attach(versions, versions.add(u.getSiteAccessed()));
+		}
+	}
+	
+	/* wraps CSR arrays, site versions and CCs read back by GraphSnapshot. ids[i] is the ID of user i, 
+	whose User is only created when it's asked for */
+	CompactUserGraph(UserIdTable ids, int[] offsets, int[] targets, SiteVersionColumn versions, 
+			int[] ccUser, int[] ccSize) {
+		this.users = new User[ids.size()];
+		this.ids = ids;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.versions = versions;
+		this.components = new int[][] {ccUser, ccSize};
+	}
+	
+	/* builds a snapshot straight from an edge list, without going through a UserGraph. edge k joins 
+	users[from[k]] and users[to[k]]. repeated edges are dropped, so the result is the same as adding 
+	every edge to a UserGraph and freezing it */
+	static CompactUserGraph fromEdges(User[] users, UserIdTable ids, int[] from, int[] to, int m) {
+		int n = users.length;
+		
+		//count each user's edge endpoints, then turn the counts into offsets
+		int[] offsets = new int[n + 1];
+		for (int k = 0; k < m; k++) {
+			offsets[from[k] + 1]++;
+			if (to[k] != from[k]) {
+				offsets[to[k] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		
+		//place every edge in both endpoints' rows
+		int[] targets = new int[offsets[n]];
+		int[] next = Arrays.copyOf(offsets, n);
+		for (int k = 0; k < m; k++) {
+			targets[next[from[k]]++] = to[k];
+			if (to[k] != from[k]) {
+				targets[next[to[k]]++] = from[k];
+			}
+		}
+		
+		return fromRows(users, ids, offsets, targets);
+	}
+	
+	/* builds a snapshot from adjacency rows that may be unsorted and contain repeats, where row i is 
+	targets[offsets[i]]...targets[offsets[i+1]-1]. targets is sorted in place */
+	static CompactUserGraph fromRows(User[] users, UserIdTable ids, int[] offsets, int[] targets) {
+		int n = users.length;
+		
+		//sort and dedup every row in parallel, storing each row's new length in next
+		int[] next = new int[n];
+		IntStream.range(0, n).parallel().forEach(i -> {
+			Arrays.sort(targets, offsets[i], offsets[i + 1]);
+			int len = 0;
+			for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+				if (len == 0 || targets[e] != targets[offsets[i] + len - 1]) {
+					targets[offsets[i] + len++] = targets[e];
+				}
+			}
+			next[i] = len;
+		});
+		
+		//squeeze out the gaps left by duplicates
+		int[] compactOffsets = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			compactOffsets[i + 1] = compactOffsets[i] + next[i];
+		}
+		int[] compactTargets = new int[compactOffsets[n]];
+		for (int i = 0; i < n; i++) {
+			System.arraycopy(targets, offsets[i], compactTargets, compactOffsets[i], next[i]);
+		}
+		
+		return new CompactUserGraph(users, ids, compactOffsets, compactTargets);
+	}
+	
+	//returns number of users in the graph
+	public int size() {
+		return users.length;
+	}
+	
+	//returns the dense index of u, or -1 if u isn't in the graph
+	public int indexOf(User u) {
+		if (u == null) {
+			throw new NullPointerException();
+		}
+		int i = ids.get(u.getUserID());
+		return i >= 0 && users[i] == u ? i : -1;
+	}
+	
+	//returns the dense index of the user with the given ID, or -1 if there's no such user
+	public int indexOf(String userID) {
+		return ids.get(userID);
+	}
+	
+	//returns the user with dense index i
+	public User getUser(int i) {
+		User u = users[i];
+		return u != null ? u : createUser(i);
+	}
+	
+	//creates the user with dense index i of a loaded graph, unless another thread just did
+	private synchronized User createUser(int i) {
+		if (users[i] == null) {
+			User u = new User(ids.getID(i), versions.get(i));
+			u.attach(versions, i);
+			users[i] = u;
+		}
+		return users[i];
+	}
+	
+	//returns the dense index's ID table, the CSR arrays and the site version column, for GraphSnapshot
+	UserIdTable ids() {
+		return ids;
+	}
+	
+	int[] offsets() {
+		return offsets;
+	}
+	
+	int[] targets() {
+		return targets;
+	}
+	
+	SiteVersionColumn versions() {
+		return versions;
+	}
+	
+	/* returns {a user in each CC, the size of each CC}, with CCs in order of their lowest index, 
+	finding them on pool unless it's null the first time they're needed */
+	int[][] components(ForkJoinPool pool) {
+		int[][] cc = components;
+		if (cc == null) {
+			int[] ccUser = new int[users.length];
+			int[] ccSize = new int[users.length];
+			int numCC = pool == null ? findSize(ccUser, ccSize) : findSizeParallel(pool, ccUser, ccSize);
+			cc = new int[][] {Arrays.copyOf(ccUser, numCC), Arrays.copyOf(ccSize, numCC)};
+			components = cc;
+		}
+		return cc;
+	}
+	
+	//returns the site version of the user with dense index i
+	public int getSiteAccessed(int i) {
+		return versions.get(i);
+	}
+	
+	//moves every user in the graph to site version sv
+	public void resetVersions(int sv) {
+		versions.fill(sv);
+	}
+	
+	//returns number of users on site version sv
+	public int countVersion(int sv) {
+		return versions.count(sv);
+	}
+	
+	//returns the number of users on each site version that at least one user is on
+	public HashMap<Integer, Integer> versionCounts() {
+		return versions.counts();
+	}
+	
+	/** total_infection: 
+	 *  Infects all users in user's connected component 
+	 *  @param u  The user from which from the infection will start
+	 *  @param sv The site version that the users will be infected with 
+	 */
+	public void totalInfection(User u, int sv) {
+		int i = indexOf(u);
+		if (i < 0) {
+			throw new IllegalArgumentException();
+		}
+		totalInfection(i, sv);
+	}
+	
+	/** Same as totalInfection(u, sv), for the user with dense index i.
+	 *  @param i  The index of the user from which from the infection will start
+	 *  @param sv The site version that the users will be infected with 
+	 */
+	public void totalInfection(int i, int sv) {
+		totalInfection(i, sv, null);
+	}
+	
+	/** Same as totalInfection(i, sv), but the index of every user whose site version actually changes
+	 *  is passed to changed.
+	 *  @param i       The index of the user from which from the infection will start
+	 *  @param sv      The site version that the users will be infected with 
+	 *  @param changed Receives the index of each user whose version changed, or null
+	 */
+	public void totalInfection(int i, int sv, IntConsumer changed) {
+		if (i < 0 || i >= users.length) {
+			throw new IllegalArgumentException();
+		}
+		traverse(i, nextEpoch(), true, sv, changed);
+	}
+	
+	/** Same as totalInfection(u, sv), but the CC is infected by a level-synchronous BFS on pool. Each
+	 *  level's frontier is split across the pool's threads, which claim the users they reach in a 
+	 *  shared atomic bitmap, so every user is infected exactly once. This is worth it for giant CCs;
+	 *  for small ones the serial version is faster.
+	 *  
+	 *  @param u    The user from which from the infection will start
+	 *  @param sv   The site version that the users will be infected with 
+	 *  @param pool The pool used to run the BFS
+	 */
+	public void totalInfection(User u, int sv, ForkJoinPool pool) {
+		if (u == null || pool == null) {
+			throw new NullPointerException();
+		}
+		int i = indexOf(u);
+		if (i < 0) {
+			throw new IllegalArgumentException();
+		}
+		
+		AtomicLongArray visited = new AtomicLongArray((users.length + 63) >>> 6);
+		claim(visited, i);
+		if (versions.get(i) != sv) {
+			versions.set(i, sv);
+		}
+		
+		//expand one level at a time until no new users are reached
+		int[] frontier = {i};
+		while (frontier.length > 0) {
+			frontier = pool.invoke(new ExpandTask(visited, frontier, 0, frontier.length, sv));
+		}
+	}
+	
+	//marks user i in visited, returns false if it was already marked
+	private static boolean claim(AtomicLongArray visited, int i) {
+		int w = i >>> 6;
+		long bit = 1L << (i & 63);
+		long old;
+		do {
+			old = visited.get(w);
+			if ((old & bit) != 0) {
+				return false;
+			}
+		} while (!visited.compareAndSet(w, old, old | bit));
+		return true;
+	}
+	
+	//starts a new serial traversal, returns the stamp that marks users as visited by it
+	private int nextEpoch() {
+		if (visited == null) {
+			visited = new int[users.length];
+			stack = new int[users.length];
+		}
+		
+		//once every stamp has been used, forget all of them and start over
+		if (++epoch == 0) {
+			Arrays.fill(visited, 0);
+			epoch = 1;
+		}
+		return epoch;
+	}
+	
+	/* helper function that visits every user in i's CC that isn't stamped with stamp, infecting each 
+	one with sv if infect is true and passing the ones whose version changed to changed unless it's 
+	null. returns the number of users visited */
+	private int traverse(int i, int stamp, boolean infect, int sv, IntConsumer changed) {
+		visited[i] = stamp;
+		stack[0] = i;
+		int size = 1;
+		
+		/* a BFS that leaves the whole CC in stack[0...size-1]. users are marked when queued, so the 
+		stack never holds more than size() entries */
+		for (int head = 0; head < size; head++) {
+			int w = stack[head];
+			for (int e = offsets[w]; e < offsets[w + 1]; e++) {
+				int v = targets[e];
+				if (visited[v] != stamp) {
+					visited[v] = stamp;
+					stack[size++] = v;
+				}
+			}
+		}
+		
+		//set the CC's versions in one pass, after which the users that changed are at the front
+		if (infect) {
+			int numChanged = versions.setAll(stack, 0, size, sv);
+			if (changed != null) {
+				for (int k = 0; k < numChanged; k++) {
+					changed.accept(stack[k]);
+				}
+			}
+		}
+		return size;
+	}
+	
+	/** limited_infection:
+	 *  Same as UserGraph.limitedInfection, but run on the snapshot.
+	 *  
+	 *  @param n  The maximum number of users that will be infected
+	 *  @param sv The site version that the users will be infected with
+	 */
+	public void limitedInfection(int n, int sv) {
+		infectSubset(n, sv, false, null, null);
+	}
+	
+	/** Same as limitedInfection(n, sv), but the index of every user whose site version actually 
+	 *  changes is passed to changed.
+	 *  
+	 *  @param n       The maximum number of users that will be infected
+	 *  @param sv      The site version that the users will be infected with
+	 *  @param changed Receives the index of each user whose version changed, or null
+	 */
+	public void limitedInfection(int n, int sv, IntConsumer changed) {
+		infectSubset(n, sv, false, null, changed);
+	}
+	
+	/** Same as limitedInfection(n, sv), but the connected components are found in parallel on pool.
+	 *  
+	 *  @param n    The maximum number of users that will be infected
+	 *  @param sv   The site version that the users will be infected with
+	 *  @param pool The pool used to find the connected components
+	 */
+	public void limitedInfection(int n, int sv, ForkJoinPool pool) {
+		if (pool == null) {
+			throw new NullPointerException();
+		}
+		infectSubset(n, sv, false, pool, null);
+	}
+	
+	/** perfect_limited_infection:
+	 *  Same as UserGraph.perfectLimitedInfection, but run on the snapshot.
+	 *  
+	 *  @param n  The number of users that will be infected
+	 *  @param sv The site version that the users will be infected with
+	 */
+	public void perfectLimitedInfection(int n, int sv) {
+		infectSubset(n, sv, true, null, null);
+	}
+	
+	/** Same as perfectLimitedInfection(n, sv), but the index of every user whose site version 
+	 *  actually changes is passed to changed. Nothing is passed to changed if the exception is thrown.
+	 *  
+	 *  @param n       The number of users that will be infected
+	 *  @param sv      The site version that the users will be infected with
+	 *  @param changed Receives the index of each user whose version changed, or null
+	 */
+	public void perfectLimitedInfection(int n, int sv, IntConsumer changed) {
+		infectSubset(n, sv, true, null, changed);
+	}
+	
+	/** Same as perfectLimitedInfection(n, sv), but the connected components are found in parallel on
+	 *  pool.
+	 *  
+	 *  @param n    The number of users that will be infected
+	 *  @param sv   The site version that the users will be infected with
+	 *  @param pool The pool used to find the connected components
+	 */
+	public void perfectLimitedInfection(int n, int sv, ForkJoinPool pool) {
+		if (pool == null) {
+			throw new NullPointerException();
+		}
+		infectSubset(n, sv, true, pool, null);
+	}
+	
+	//helper function that infects the best subset of CCs with at most n users in total, finding the 
+	//CCs in parallel on pool unless it's null and passing the users whose version changed to changed
+	private void infectSubset(int n, int sv, boolean exact, ForkJoinPool pool, IntConsumer changed) {
+		if (n < 0) {
+			throw new IllegalArgumentException();
+		}
+		
+		if (users.length == 0) {
+			return;
+		}
+		
+		//the size and a user in each connected component, found once per snapshot
+		int[][] cc = components(pool);
+		int[] ccUser = cc[0];
+		int[] ccSize = cc[1];
+		int numCC = ccSize.length;
+		
+		boolean[] inSol = new boolean[numCC];
+		//calculate optimal CCs, there's no need to look at sums above the number of users in the graph
+		int maxSum = SubsetSum.findSubsetGrouped(ccSize, numCC, Math.min(n, users.length), inSol);
+		
+		if (exact && maxSum != n) {
+			throw new UnsupportedOperationException();
+		}
+		
+		//infect all connected components that exist in the solution
+		int stamp = nextEpoch();
+		for (int x = 0; x < numCC; x++) {
+			if (inSol[x]) {
+				traverse(ccUser[x], stamp, true, sv, changed);
+			}
+		}
+	}
+	
+	//helper function that finds the size of each connected component, returns # of CCs. CCs are 
+	//listed in order of their lowest index, and that index is used as the CC's user
+	int findSize(int[] ccUser, int[] ccSize) {
+		int stamp = nextEpoch();
+		
+		int i = 0;
+		for (int u = 0; u < users.length; u++) {
+			if (visited[u] != stamp) {
+				ccUser[i] = u;
+				ccSize[i++] = traverse(u, stamp, false, 0, null);
+			}
+		}
+		
+		return i;
+	}
+	
+	/* helper function that finds the same CCs as findSize, in the same order, using all threads of 
+	pool. Every edge is merged into a lock-free union-find where a root only ever changes by a CAS that
+	hangs it under a root with a lower index, so each CC ends up rooted at its lowest index no matter
+	how the threads interleave. returns # of CCs */
+	int findSizeParallel(ForkJoinPool pool, int[] ccUser, int[] ccSize) {
+		int n = users.length;
+		AtomicIntegerArray parent = new AtomicIntegerArray(n);
+		for (int i = 0; i < n; i++) {
+			parent.set(i, i);
+		}
+		pool.invoke(new UnionTask(parent, 0, n));
+		
+		//count the size of each root's CC, then list the roots in index order
+		int[] rootSize = new int[n];
+		for (int i = 0; i < n; i++) {
+			rootSize[find(parent, i)]++;
+		}
+		int numCC = 0;
+		for (int i = 0; i < n; i++) {
+			if (parent.get(i) == i) {
+				ccUser[numCC] = i;
+				ccSize[numCC++] = rootSize[i];
+			}
+		}
+		
+		return numCC;
+	}
+	
+	//returns the root of x's set, halving the path to it along the way
+	private static int find(AtomicIntegerArray parent, int x) {
+		int p;
+		while ((p = parent.get(x)) != x) {
+			int gp = parent.get(p);
+			if (gp != p) {
+				parent.compareAndSet(x, p, gp);
+			}
+			x = gp;
+		}
+		return x;
+	}
+	
+	//merges the sets containing x and y
+	private static void union(AtomicIntegerArray parent, int x, int y) {
+		while (true) {
+			x = find(parent, x);
+			y = find(parent, y);
+			if (x == y) {
+				return;
+			}
+			
+			//hang the higher root under the lower one, retrying if another thread moved it first
+			if (x < y) {
+				int tmp = x;
+				x = y;
+				y = tmp;
+			}
+			if (parent.compareAndSet(x, x, y)) {
+				return;
+			}
+		}
+	}
+	
+	//fork-join task that unions every edge whose lower endpoint is in [from, to)
+	private class UnionTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		//ranges with fewer users than this are merged on one thread
+		private static final int THRESHOLD = 1 << 12;
+		
+		private final AtomicIntegerArray parent;
+		private final int from;
+		private final int to;
+		
+		UnionTask(AtomicIntegerArray parent, int from, int to) {
+			this.parent = parent;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				for (int u = from; u < to; u++) {
+					for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+						if (targets[e] > u) {
+							union(parent, u, targets[e]);
+						}
+					}
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new UnionTask(parent, from, mid), new UnionTask(parent, mid, to));
+		}
+	}
+	
+	//fork-join task that infects the unvisited neighbors of frontier[from...to-1] and returns them
+	private class ExpandTask extends RecursiveTask<int[]> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		//frontier slices with fewer users than this are expanded on one thread
+		private static final int THRESHOLD = 1 << 10;
+		
+		private final AtomicLongArray visited;
+		private final int[] frontier;
+		private final int from;
+		private final int to;
+		private final int sv;
+		
+		ExpandTask(AtomicLongArray visited, int[] frontier, int from, int to, int sv) {
+			this.visited = visited;
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+			this.sv = sv;
+		}
+		
+		@Override
+		protected int[] compute() {
+			if (to - from > THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				ExpandTask right = new ExpandTask(visited, frontier, mid, to, sv);
+				right.fork();
+				int[] left = new ExpandTask(visited, frontier, from, mid, sv).compute();
+				int[] rest = right.join();
+				
+				int[] next = Arrays.copyOf(left, left.length + rest.length);
+				System.arraycopy(rest, 0, next, left.length, rest.length);
+				return next;
+			}
+			
+			int[] next = new int[16];
+			int size = 0;
+			for (int f = from; f < to; f++) {
+				int w = frontier[f];
+				for (int e = offsets[w]; e < offsets[w + 1]; e++) {
+					int v = targets[e];
+					if (claim(visited, v)) {
+						if (size == next.length) {
+							next = Arrays.copyOf(next, size * 2);
+						}
+						next[size++] = v;
+					}
+				}
+			}
+			versions.setAll(next, 0, size, sv);
+			return Arrays.copyOf(next, size);
+		}
+	}
+	
+}
@@ -0,0 +1,165 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class CompactUserGraphTests {
+
+	//builds the graph used by the tests below: CCs {a}, {b, c}, {d, e, f, h, i} and {j, k, l}
+	private static User[] buildGraph(UserGraph g) {
+		User[] u = new User[11];
+		String[] ids = {"a", "b", "c", "d", "e", "f", "h", "i", "j", "k", "l"};
+		for (int x = 0; x < u.length; x++) {
+			u[x] = new User(ids[x], x + 1);
+			g.addUser(u[x]);
+		}
+		g.addEdge(u[1], u[2]);
+		g.addEdge(u[3], u[4]);
+		g.addEdge(u[4], u[5]);
+		g.addEdge(u[3], u[6]);
+		g.addEdge(u[5], u[7]);
+		g.addEdge(u[8], u[9]);
+		g.addEdge(u[9], u[10]);
+		return u;
+	}
+	
+	//testing that the snapshot keeps every user and edge
+	@Test
+	public void cugStructureTest() {
+		UserGraph g = new UserGraph();
+		User[] u = buildGraph(g);
+		CompactUserGraph c = new CompactUserGraph(g);
+		
+		assertEquals(c.size(), 11);
+		for (User x : u) {
+			assertSame(c.getUser(c.indexOf(x)), x);
+		}
+		assertEquals(c.indexOf(new User("z", 1)), -1);
+	}
+	
+	//testing on non-existant user
+	@Test(expected = IllegalArgumentException.class)
+	public void cugIllegalUserTest() {
+		CompactUserGraph c = new CompactUserGraph(new UserGraph());
+		c.totalInfection(new User("a", 1), 1);
+	}
+	
+	//testing total infection on the snapshot
+	@Test
+	public void cugTotalInfectionTest() {
+		UserGraph g = new UserGraph();
+		User[] u = buildGraph(g);
+		new CompactUserGraph(g).totalInfection(u[6], 10);
+		
+		for (int x = 0; x < u.length; x++) {
+			assertEquals(u[x].getSiteAccessed(), x >= 3 && x <= 7 ? 10 : x + 1);
+		}
+	}
+	
+	//testing limited infection on the snapshot
+	@Test
+	public void cugLimitedInfectionTest() {
+		UserGraph g = new UserGraph();
+		User[] u = buildGraph(g);
+		new CompactUserGraph(g).limitedInfection(4, 40);
+		
+		for (int x = 0; x < u.length; x++) {
+			assertEquals(u[x].getSiteAccessed(), x == 0 || x >= 8 ? 40 : x + 1);
+		}
+	}
+	
+	//testing perfect limited infection on the snapshot
+	@Test
+	public void cugPerfectLimitedInfectionTest() {
+		UserGraph g = new UserGraph();
+		User[] u = buildGraph(g);
+		new CompactUserGraph(g).perfectLimitedInfection(7, 40);
+		
+		for (int x = 0; x < u.length; x++) {
+			assertEquals(u[x].getSiteAccessed(), x >= 1 && x <= 7 ? 40 : x + 1);
+		}
+	}
+	
+	//testing perfect limited infection on the snapshot, when it isn't possible
+	@Test(expected = UnsupportedOperationException.class)
+	public void cugPerfectLimitedInfectionUnsupportedTest() {
+		UserGraph g = new UserGraph();
+		buildGraph(g);
+		new CompactUserGraph(g).perfectLimitedInfection(12, 40);
+	}
+	
+	//testing that parallel component discovery finds the same CCs as the serial one
+	@Test
+	public void cugParallelComponentsTest() {
+		UserGraph g = new UserGraph();
+		User[] u = new User[20000];
+		for (int x = 0; x < u.length; x++) {
+			u[x] = new User("u" + x, 1);
+			g.addUser(u[x]);
+		}
+		Random r = new Random(3);
+		for (int x = 0; x < 15000; x++) {
+			g.addEdge(u[r.nextInt(u.length)], u[r.nextInt(u.length)]);
+		}
+		CompactUserGraph c = new CompactUserGraph(g);
+		
+		int[] ccUser = new int[u.length];
+		int[] ccSize = new int[u.length];
+		int numCC = c.findSize(ccUser, ccSize);
+		int[] parUser = new int[u.length];
+		int[] parSize = new int[u.length];
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertEquals(c.findSizeParallel(pool, parUser, parSize), numCC);
+		} finally {
+			pool.shutdown();
+		}
+		assertArrayEquals(parUser, ccUser);
+		assertArrayEquals(parSize, ccSize);
+	}
+	
+	//testing that the parallel BFS infects exactly the user's CC
+	@Test
+	public void cugParallelTotalInfectionTest() {
+		UserGraph g = new UserGraph();
+		User[] u = new User[50000];
+		for (int x = 0; x < u.length; x++) {
+			u[x] = new User("u" + x, 1);
+			g.addUser(u[x]);
+		}
+		
+		//a binary tree over the even users, with the odd users left as singletons
+		for (int x = 2; x < u.length; x += 2) {
+			g.addEdge(u[x], u[((x / 2) - 1) / 2 * 2]);
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			new CompactUserGraph(g).totalInfection(u[u.length - 2], 10, pool);
+		} finally {
+			pool.shutdown();
+		}
+		
+		for (int x = 0; x < u.length; x++) {
+			assertEquals(u[x].getSiteAccessed(), x % 2 == 0 ? 10 : 1);
+		}
+	}
+	
+	//testing that only users whose version actually changes are reported on the snapshot
+	@Test
+	public void cugChangeFeedTest() {
+		UserGraph g = new UserGraph();
+		User[] u = buildGraph(g);
+		u[4].access(40);
+		CompactUserGraph c = new CompactUserGraph(g);
+		
+		int[] count = new int[1];
+		c.totalInfection(c.indexOf(u[6]), 40, i -> {
+			assertTrue(i >= 3 && i <= 7 && i != 4);
+			count[0]++;
+		});
+		assertEquals(count[0], 4);
+	}
+
+}
@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+public class ComponentIndex {
+	
+	/** A disjoint-set (union-find) forest over dense user indices, kept up to date as users and 
+	 * edges are added so that the connected components of a UserGraph never have to be rediscovered 
+	 * with a full traversal. Uses union by size and path halving, so every operation runs in 
+	 * near-constant amortized time. The roots of all sets are also kept in a dense array so that the
+	 * components can be listed in O(# of CCs) rather than O(# of users). <p>
+	 * 
+	 * A union-find can't undo a union, so to let a set split when an edge or user is removed, each 
+	 * element lives at a node of the forest that can be swapped out. The elements that split off are
+	 * given fresh nodes under a new root, and their old nodes stay behind as ghosts that no element 
+	 * maps to and that aren't counted in their root's size. Once there are more ghosts than elements,
+	 * the forest is rebuilt without them.
+	 */
+	
+	//node[x] is element x's node
+	private int[] node;
+	
+	//parent[v] is v's parent in the forest, or v itself if v is a root
+	private int[] parent;
+	
+	//size[r] is the number of elements in the set rooted at r, and rep[r] is one of them
+	private int[] size;
+	private int[] rep;
+	
+	//roots of every set, and the position of each root in roots
+	private int[] roots;
+	private int[] rootPos;
+	private int numRoots;
+	
+	//number of elements, nodes and ghosts
+	private int count;
+	private int numNodes;
+	private int numGhosts;
+	
+	//constructor
+	public ComponentIndex() {
+		node = new int[16];
+		parent = new int[16];
+		size = new int[16];
+		rep = new int[16];
+		roots = new int[16];
+		rootPos = new int[16];
+	}
+	
+	//returns number of elements
+	public int size() {
+		return count;
+	}
+	
+	//returns number of sets
+	public int numComponents() {
+		return numRoots;
+	}
+	
+	//returns an element of the k-th set, for 0 <= k < numComponents()
+	public int member(int k) {
+		return rep[roots[k]];
+	}
+	
+	//adds a new element in a set of its own, returns its index
+	public int add() {
+		if (count == node.length) {
+			node = Arrays.copyOf(node, count * 2);
+		}
+		int x = count++;
+		node[x] = newRoot(x, 1);
+		return x;
+	}
+	
+	//helper function that makes a new node, as the root of a set of setSize elements including x
+	private int newRoot(int x, int setSize) {
+		int v = newNode();
+		size[v] = setSize;
+		rep[v] = x;
+		rootPos[v] = numRoots;
+		roots[numRoots++] = v;
+		return v;
+	}
+	
+	//helper function that makes a new node with no parent
+	private int newNode() {
+		if (numNodes == parent.length) {
+			int cap = numNodes * 2;
+			parent = Arrays.copyOf(parent, cap);
+			size = Arrays.copyOf(size, cap);
+			rep = Arrays.copyOf(rep, cap);
+			roots = Arrays.copyOf(roots, cap);
+			rootPos = Arrays.copyOf(rootPos, cap);
+		}
+		int v = numNodes++;
+		parent[v] = v;
+		return v;
+	}
+	
+	//returns the root node of the set containing element x
+	public int find(int x) {
+		int v = node[x];
+		while (parent[v] != v) {
+			//path halving: point v at its grandparent as we walk up
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+	
+	//returns number of elements in the set containing x
+	public int componentSize(int x) {
+		return size[find(x)];
+	}
+	
+	//merges the sets containing x and y, returns false if they were already the same set
+	public boolean union(int x, int y) {
+		int rx = find(x);
+		int ry = find(y);
+		if (rx == ry) {
+			return false;
+		}
+		
+		//hang the smaller tree under the larger one
+		if (size[rx] < size[ry]) {
+			int tmp = rx;
+			rx = ry;
+			ry = tmp;
+		}
+		parent[ry] = rx;
+		size[rx] += size[ry];
+		dropRoot(ry);
+		return true;
+	}
+	
+	//helper function that removes r from the list of roots, moving the last root into its slot
+	private void dropRoot(int r) {
+		int last = roots[--numRoots];
+		roots[rootPos[r]] = last;
+		rootPos[last] = rootPos[r];
+	}
+	
+	/** Moves elems[from...to-1] out of their set into a set of their own. They must all be in the 
+	 *  same set, and stay must be an element of that set that isn't moving.
+	 *  @param elems The elements that split off
+	 *  @param from  The first element in elems
+	 *  @param to    One past the last element in elems
+	 *  @param stay  An element that stays in the old set
+	 */
+	public void split(int[] elems, int from, int to, int stay) {
+		int r = find(stay);
+		size[r] -= to - from;
+		rep[r] = stay;
+		
+		//the first element becomes the new root, and the rest hang directly under it
+		int newRoot = newRoot(elems[from], to - from);
+		node[elems[from]] = newRoot;
+		for (int p = from + 1; p < to; p++) {
+			int v = newNode();
+			parent[v] = newRoot;
+			node[elems[p]] = v;
+		}
+		numGhosts += to - from;
+		compactIfNeeded();
+	}
+	
+	/** Removes element x, which must be alone in its set, and moves the last element to index x so
+	 *  the elements stay numbered 0...size()-1.
+	 *  @param x The element to remove
+	 */
+	public void remove(int x) {
+		int r = find(x);
+		if (size[r] != 1) {
+			throw new IllegalArgumentException();
+		}
+		dropRoot(r);
+		numGhosts++;
+		
+		int last = --count;
+		if (x != last) {
+			node[x] = node[last];
+			int rl = find(x);
+			if (rep[rl] == last) {
+				rep[rl] = x;
+			}
+		}
+		compactIfNeeded();
+	}
+	
+	//helper function that rebuilds the forest without ghosts once they outnumber the elements
+	private void compactIfNeeded() {
+		if (numGhosts <= count) {
+			return;
+		}
+		
+		//every set is rebuilt as a star around the element its old root represents
+		int[] newParent = new int[Math.max(16, count)];
+		for (int x = 0; x < count; x++) {
+			newParent[x] = rep[find(x)];
+		}
+		int[] newSize = new int[newParent.length];
+		for (int k = 0; k < numRoots; k++) {
+			newSize[rep[roots[k]]] = size[roots[k]];
+			roots[k] = rep[roots[k]];
+		}
+		
+		parent = newParent;
+		size = newSize;
+		rep = new int[newParent.length];
+		int[] newRootPos = new int[newParent.length];
+		int[] newRoots = new int[newParent.length];
+		for (int x = 0; x < count; x++) {
+			node[x] = x;
+			rep[x] = x;
+		}
+		for (int k = 0; k < numRoots; k++) {
+			newRoots[k] = roots[k];
+			newRootPos[roots[k]] = k;
+		}
+		roots = newRoots;
+		rootPos = newRootPos;
+		numNodes = count;
+		numGhosts = 0;
+	}
+	
+}
@@ -0,0 +1,260 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentUserGraph {
+	
+	/** A version of UserGraph that many threads can add users and edges to at once, while infections
+	 * keep running. Users are found through a ConcurrentHashMap keyed by userID, and each user's 
+	 * adjacency is a plain int array guarded by one of a fixed set of striped locks, so threads only 
+	 * contend when they touch users in the same stripe. <p>
+	 * 
+	 * Infections don't walk the live adjacency. They run on a CompactUserGraph snapshot, whose rows 
+	 * are copied out while every stripe lock is held. Each mutation holds the stripe locks it 
+	 * touches for its whole change, adding an edge in both directions under both of its users' 
+	 * stripes, so mutations only wait on each other within a stripe and a snapshot always sees each 
+	 * edge either in both directions or not at all. Only the copy happens under the locks; the rows 
+	 * are sorted, deduplicated and packed into a CSR after they're released. The snapshot is reused 
+	 * until the graph changes again. <p>
+	 * 
+	 * The graph keeps its own adjacency, so User.getNeighbors() isn't updated for users added here, 
+	 * and a user can only be added to one graph. Each new snapshot moves the users' site versions
+	 * into its own SiteVersionColumn, so a snapshot is never built while one of this graph's 
+	 * infections is running, or that infection's writes to the old column would be lost. Infections 
+	 * should go through this graph rather than straight through a snapshot, and they run one at a 
+	 * time.
+	 */
+	
+	//number of lock stripes, a power of two
+	private static final int STRIPES = 64;
+	
+	//a user and its adjacency, which is guarded by the stripe lock for id
+	private static class Node {
+		final User user;
+		final int id;
+		int[] neighbors;
+		int degree;
+		
+		Node(User user, int id) {
+			this.user = user;
+			this.id = id;
+			neighbors = new int[4];
+		}
+	}
+	
+	//every user's node, keyed by userID
+	private final ConcurrentHashMap<String, Node> nodes;
+	
+	//next dense index to hand out
+	private final AtomicInteger nextId;
+	
+	/* locks guarding the adjacency of users whose index is the same mod STRIPES. every mutation 
+	holds at least one of them, and a snapshot's rows are copied out while holding all of them */
+	private final ReentrantLock[] stripes;
+	
+	/* held while a snapshot is built or an infection runs, so only one snapshot is built at a time, 
+	the newest is kept, and the users never move to a new column in the middle of an infection */
+	private final ReentrantLock buildLock;
+	
+	/* number of changes made to the graph, only added to under a stripe lock, and the latest 
+	snapshot with the number it was taken at */
+	private final LongAdder modCount;
+	private volatile CompactUserGraph snapshot;
+	private volatile long snapshotModCount;
+	
+	//graph constructor
+	public ConcurrentUserGraph() {
+		nodes = new ConcurrentHashMap<String, Node>();
+		nextId = new AtomicInteger();
+		stripes = new ReentrantLock[STRIPES];
+		for (int s = 0; s < STRIPES; s++) {
+			stripes[s] = new ReentrantLock();
+		}
+		buildLock = new ReentrantLock();
+		modCount = new LongAdder();
+		snapshotModCount = -1;
+	}
+	
+	//returns number of users in the graph
+	public int size() {
+		return nodes.size();
+	}
+	
+	/* add users to the graph, a user with the same ID as a different user in the graph isn't allowed,
+	and neither is a user that's in another graph */
+	public void addUser(User u) {
+		if (u == null) {
+			throw new NullPointerException();
+		}
+		
+		//any stripe keeps a snapshot out until the new user's index is in nodes, so spread them by ID
+		ReentrantLock lock = stripes[u.getUserID().hashCode() & (STRIPES - 1)];
+		lock.lock();
+		try {
+			Node node = nodes.computeIfAbsent(u.getUserID(), id -> {
+				//a user whose site version lives in another graph's column can't be added
+				if (u.column() != null) {
+					throw new IllegalArgumentException();
+				}
+				modCount.increment();
+				return new Node(u, nextId.getAndIncrement());
+			});
+			if (node.user != u) {
+				throw new IllegalArgumentException();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	//add an edge between two users in the graph
+	public void addEdge(User u, User v) {
+		if (u == null || v == null) {
+			throw new NullPointerException();
+		}
+		Node nu = nodes.get(u.getUserID());
+		Node nv = nodes.get(v.getUserID());
+		if (nu == null || nv == null || nu.user != u || nv.user != v) {
+			throw new IllegalArgumentException();
+		}
+		
+		
+		//both stripes are taken in index order, the same order a snapshot takes every stripe in
+		int stripeU = nu.id & (STRIPES - 1);
+		int stripeV = nv.id & (STRIPES - 1);
+		ReentrantLock first = stripes[Math.min(stripeU, stripeV)];
+		ReentrantLock second = stripes[Math.max(stripeU, stripeV)];
+		first.lock();
+		second.lock();
+		try {
+			append(nu, nv.id);
+			if (nu != nv) {
+				append(nv, nu.id);
+			}
+			modCount.increment();
+		} finally {
+			second.unlock();
+			first.unlock();
+		}
+	}
+	
+	//helper function that adds neighbor to node's adjacency, node's stripe lock must be held
+	private static void append(Node node, int neighbor) {
+		if (node.degree == node.neighbors.length) {
+			node.neighbors = Arrays.copyOf(node.neighbors, node.degree * 2);
+		}
+		node.neighbors[node.degree++] = neighbor;
+	}
+	
+	/** Returns a consistent snapshot of the graph, reusing the last one if nothing has changed since.
+	 *  Mutations only wait while the users' rows are copied out. Sorting and deduplicating the rows
+	 *  and building the CSR happen after they're let go again. A new snapshot waits for a running
+	 *  infection to finish before it moves the users' site versions into its column.
+	 *  @return a CompactUserGraph holding every user and edge added so far
+	 */
+	public CompactUserGraph snapshot() {
+		//the count is written after the snapshot, so read it first to never pair it with an older one
+		long last = snapshotModCount;
+		CompactUserGraph s = snapshot;
+		if (s != null && last == modCount.sum()) {
+			return s;
+		}
+		
+		buildLock.lock();
+		try {
+			//another thread may have built it while this one waited
+			if (snapshot != null && snapshotModCount == modCount.sum()) {
+				return snapshot;
+			}
+			
+			//every stripe is held, so no mutation is running and no user is half added
+			long mc;
+			int n;
+			User[] users;
+			int[] offsets;
+			int[] targets;
+			for (ReentrantLock lock : stripes) {
+				lock.lock();
+			}
+			try {
+				mc = modCount.sum();
+				n = nextId.get();
+				users = new User[n];
+				offsets = new int[n + 1];
+				Node[] byId = new Node[n];
+				for (Node node : nodes.values()) {
+					byId[node.id] = node;
+				}
+				for (int i = 0; i < n; i++) {
+					users[i] = byId[i].user;
+					offsets[i + 1] = offsets[i] + byId[i].degree;
+				}
+				targets = new int[offsets[n]];
+				for (int i = 0; i < n; i++) {
+					System.arraycopy(byId[i].neighbors, 0, targets, offsets[i], byId[i].degree);
+				}
+			} finally {
+				for (int x = STRIPES - 1; x >= 0; x--) {
+					stripes[x].unlock();
+				}
+			}
+			
+			//the copies are private to this thread, so mutations can go on while they're built into a CSR
+			UserIdTable ids = new UserIdTable(n);
+			for (int i = 0; i < n; i++) {
+				ids.intern(users[i].getUserID());
+			}
+			s = CompactUserGraph.fromRows(users, ids, offsets, targets);
+			snapshot = s;
+			snapshotModCount = mc;
+			return s;
+		} finally {
+			buildLock.unlock();
+		}
+	}
+	
+	/** total_infection: 
+	 *  Infects all users in user's connected component, as of the latest snapshot
+	 *  @param u  The user from which from the infection will start
+	 *  @param sv The site version that the users will be infected with 
+	 */
+	public void totalInfection(User u, int sv) {
+		buildLock.lock();
+		try {
+			snapshot().totalInfection(u, sv);
+		} finally {
+			buildLock.unlock();
+		}
+	}
+	
+	/** limited_infection:
+	 *  Same as UserGraph.limitedInfection, run on the latest snapshot
+	 *  @param n  The maximum number of users that will be infected
+	 *  @param sv The site version that the users will be infected with
+	 */
+	public void limitedInfection(int n, int sv) {
+		buildLock.lock();
+		try {
+			snapshot().limitedInfection(n, sv);
+		} finally {
+			buildLock.unlock();
+		}
+	}
+	
+	/** perfect_limited_infection:
+	 *  Same as UserGraph.perfectLimitedInfection, run on the latest snapshot
+	 *  @param n  The number of users that will be infected
+	 *  @param sv The site version that the users will be infected with
+	 */
+	public void perfectLimitedInfection(int n, int sv) {
+		buildLock.lock();
+		try {
+			snapshot().perfectLimitedInfection(n, sv);
+		} finally {
+			buildLock.unlock();
+		}
+	}
+	
+}
@@ -0,0 +1,162 @@
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ConcurrentUserGraphTests {
+
+	//testing that users and edges added from many threads all end up in the snapshot
+	@Test
+	public void concConcurrentIngestTest() throws InterruptedException {
+		ConcurrentUserGraph g = new ConcurrentUserGraph();
+		int numThreads = 8;
+		int perThread = 5000;
+		User[] users = new User[numThreads * perThread];
+		for (int x = 0; x < users.length; x++) {
+			users[x] = new User("u" + x, 1);
+		}
+		
+		//each thread adds its own users, then links them into a chain
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			final int first = t * perThread;
+			threads[t] = new Thread(() -> {
+				for (int x = first; x < first + perThread; x++) {
+					g.addUser(users[x]);
+				}
+				for (int x = first + 1; x < first + perThread; x++) {
+					g.addEdge(users[x - 1], users[x]);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(g.size(), users.length);
+		
+		//infecting one chain reaches exactly that thread's users
+		g.totalInfection(users[perThread], 10);
+		for (int x = 0; x < users.length; x++) {
+			assertEquals(users[x].getSiteAccessed(), x >= perThread && x < 2 * perThread ? 10 : 1);
+		}
+	}
+	
+	//testing that infections running while other threads add users and take snapshots lose no writes
+	@Test
+	public void concInfectDuringIngestTest() throws InterruptedException {
+		ConcurrentUserGraph g = new ConcurrentUserGraph();
+		
+		//a chain that's already in the graph, which the infections target
+		User[] chain = new User[20000];
+		for (int x = 0; x < chain.length; x++) {
+			chain[x] = new User("c" + x, 1);
+			g.addUser(chain[x]);
+			if (x > 0) {
+				g.addEdge(chain[x - 1], chain[x]);
+			}
+		}
+		
+		/* ingest threads add chains of their own until the infections are done, and another thread 
+		keeps adding users and rebuilding the snapshot. added[0] is the reader's count */
+		int numThreads = 4;
+		int maxPerThread = 5000;
+		int[] added = new int[numThreads + 1];
+		AtomicBoolean done = new AtomicBoolean();
+		Thread[] threads = new Thread[numThreads + 1];
+		for (int t = 0; t < numThreads; t++) {
+			final int id = t;
+			threads[t] = new Thread(() -> {
+				User prev = null;
+				for (int x = 0; x < maxPerThread && !done.get(); x++) {
+					User u = new User("t" + id + "_" + x, 1);
+					g.addUser(u);
+					if (prev != null) {
+						g.addEdge(prev, u);
+					}
+					prev = u;
+					added[id + 1]++;
+				}
+			});
+		}
+		threads[numThreads] = new Thread(() -> {
+			for (int x = 0; !done.get(); x++) {
+				g.addUser(new User("r" + x, 1));
+				added[0]++;
+				g.snapshot();
+			}
+		});
+		for (Thread t : threads) {
+			t.start();
+		}
+		
+		//every infection's version is seen by the whole chain, however many snapshots came in between
+		try {
+			for (int sv = 2; sv < 2000; sv++) {
+				g.totalInfection(chain[0], sv);
+				for (User u : chain) {
+					assertEquals(u.getSiteAccessed(), sv);
+				}
+			}
+		} finally {
+			done.set(true);
+			for (Thread t : threads) {
+				t.join();
+			}
+		}
+		
+		//every ingested edge made it in, so infecting one thread's chain reaches all of it
+		int total = chain.length;
+		for (int count : added) {
+			total += count;
+		}
+		assertEquals(g.size(), total);
+		CompactUserGraph s = g.snapshot();
+		g.totalInfection(s.getUser(s.indexOf("t0_0")), 0);
+		int infected = 0;
+		for (int i = 0; i < s.size(); i++) {
+			if (s.getUser(i).getSiteAccessed() == 0) {
+				infected++;
+			}
+		}
+		assertEquals(infected, added[1]);
+	}
+	
+	//testing that the snapshot is reused until the graph changes
+	@Test
+	public void concSnapshotReuseTest() {
+		ConcurrentUserGraph g = new ConcurrentUserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 2);
+		g.addUser(a);
+		g.addUser(b);
+		
+		CompactUserGraph s = g.snapshot();
+		assertSame(g.snapshot(), s);
+		
+		g.addEdge(a, b);
+		assertNotSame(g.snapshot(), s);
+		g.limitedInfection(2, 10);
+		assertEquals(a.getSiteAccessed(), 10);
+		assertEquals(b.getSiteAccessed(), 10);
+	}
+	
+	//testing that a second user can't be added with an ID already in the graph
+	@Test(expected = IllegalArgumentException.class)
+	public void concDuplicateIdTest() {
+		ConcurrentUserGraph g = new ConcurrentUserGraph();
+		g.addUser(new User("a", 1));
+		g.addUser(new User("a", 2));
+	}
+	
+	//testing that a user already in a UserGraph can't be added
+	@Test(expected = IllegalArgumentException.class)
+	public void concUserInOtherGraphTest() {
+		UserGraph other = new UserGraph();
+		User a = new User("a", 1);
+		other.addUser(a);
+		new ConcurrentUserGraph().addUser(a);
+	}
+
+}
@@ -0,0 +1,508 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+public class EdgeListLoader {
+
+	/** Bulk loader that builds a CompactUserGraph straight from a file of coach/student pairs, instead
+	 * of creating users and adding edges one pair at a time. The file is read through memory-mapped
+	 * buffers and each mapped window is split into chunks that are parsed in parallel. Each chunk 
+	 * interns the IDs it reads into a table of its own as it goes, keyed on the IDs' bytes, so no 
+	 * String is made per occurrence. The chunks' tables are then merged into one UserIdTable, one 
+	 * User is created per distinct ID, and the CSR arrays are built from the resulting int edge 
+	 * list. <p>
+	 *
+	 * Two formats are supported. A CSV file has one pair per line, as "coachID,studentID". A binary
+	 * file is a sequence of big-endian int pairs, where each int is a numeric user ID.
+	 */
+
+	//largest window of the file that is mapped at once, just under the 2GB limit of a ByteBuffer
+	private static final int WINDOW = 1 << 30;
+
+	//smallest number of bytes handed to a single parsing thread
+	private static final int MIN_CHUNK = 1 << 20;
+
+	//bytes copied out of the mapped file at once while parsing, grown for longer lines
+	private static final int BLOCK = 1 << 16;
+
+	/** Loads a CSV file of "coachID,studentID" lines. Blank lines are skipped, and spaces and tabs
+	 *  around each ID are ignored.
+	 *  @param file The file to load
+	 *  @param sv   The site version that every user starts on
+	 *  @return a graph with one user per distinct ID and one edge per distinct pair
+	 */
+	public static CompactUserGraph loadCsv(Path file, int sv) throws IOException {
+		if (file == null) {
+			throw new NullPointerException();
+		}
+
+		//parse every window of the file into chunks of pairs of chunk-local indices
+		ArrayList<CsvChunk> chunks = new ArrayList<CsvChunk>();
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = ch.size();
+			long pos = 0;
+			while (pos < size) {
+				MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, 
+						Math.min(WINDOW, size - pos));
+
+				//unless this is the last window, stop it after its last complete line
+				int limit = buf.limit();
+				if (pos + limit < size) {
+					while (limit > 0 && buf.get(limit - 1) != '\n') {
+						limit--;
+					}
+					if (limit == 0) {
+						throw new IllegalArgumentException();
+					}
+				}
+
+				for (CsvChunk chunk : parseCsvWindow(buf, limit)) {
+					chunks.add(chunk);
+				}
+				pos += limit;
+			}
+		}
+
+		/* merge the chunks' tables in parallel, each thread matching up the IDs of one range of hashes
+		across every chunk by their bytes, so no String is made until an ID's first appearance is 
+		known */
+		int numChunks = chunks.size();
+		CsvChunk[] chunkArray = chunks.toArray(new CsvChunk[numChunks]);
+		int numParts = Runtime.getRuntime().availableProcessors() * 4;
+		IntStream.range(0, numChunks).parallel().forEach(c -> chunkArray[c].partition(numParts));
+		IdPartition[] parts = IntStream.range(0, numParts).parallel()
+				.mapToObj(p -> new IdPartition(chunkArray, p))
+				.toArray(IdPartition[]::new);
+
+		/* give the IDs global indices in order of their first appearance in the file, no matter how it
+		was chunked: chunk by chunk, and in local index order within a chunk. only first appearances 
+		are turned into strings */
+		int[] base = new int[numChunks + 1];
+		for (int c = 0; c < numChunks; c++) {
+			base[c + 1] = base[c];
+			for (IdPartition part : parts) {
+				base[c + 1] += part.firsts[c];
+			}
+		}
+		int n = base[numChunks];
+		User[] users = new User[n];
+		IntStream.range(0, numChunks).parallel().forEach(c -> {
+			CsvChunk chunk = chunkArray[c];
+			int g = base[c];
+			for (int i = 0; i < chunk.numIds; i++) {
+				if (chunk.toGlobal[i] < 0) {
+					parts[chunk.partOf(i, numParts)].global[-1 - chunk.toGlobal[i]] = g;
+					users[g++] = new User(chunk.id(i), sv);
+				}
+			}
+		});
+		IntStream.range(0, numChunks).parallel().forEach(c -> {
+			CsvChunk chunk = chunkArray[c];
+			for (int i = 0; i < chunk.numIds; i++) {
+				int q = chunk.toGlobal[i] < 0 ? -1 - chunk.toGlobal[i] : chunk.toGlobal[i];
+				chunk.toGlobal[i] = parts[chunk.partOf(i, numParts)].global[q];
+			}
+			chunk.dropIds();
+		});
+		UserIdTable ids = new UserIdTable(n);
+		for (User u : users) {
+			ids.intern(u.getUserID());
+		}
+
+		long[] firstPair = new long[numChunks + 1];
+		for (int c = 0; c < numChunks; c++) {
+			firstPair[c + 1] = firstPair[c] + chunkArray[c].numEnds / 2;
+		}
+		if (firstPair[numChunks] > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException();
+		}
+
+		//translate each chunk's pairs into global indices in parallel
+		int m = (int) firstPair[numChunks];
+		int[] from = new int[m];
+		int[] to = new int[m];
+		IntStream.range(0, numChunks).parallel().forEach(c -> {
+			int[] ends = chunkArray[c].ends;
+			int[] map = chunkArray[c].toGlobal;
+			int k = (int) firstPair[c];
+			for (int x = 0; x < chunkArray[c].numEnds; x += 2) {
+				from[k] = map[ends[x]];
+				to[k++] = map[ends[x + 1]];
+			}
+		});
+
+		return CompactUserGraph.fromEdges(users, ids, from, to, m);
+	}
+
+	//helper function that splits buf[0...limit-1] at line breaks and parses the chunks in parallel
+	private static CsvChunk[] parseCsvWindow(ByteBuffer buf, int limit) {
+		int numChunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, 
+				limit / MIN_CHUNK));
+
+		//chunk c covers bytes start[c]...start[c+1]-1, and every chunk but the first starts a line
+		int[] start = new int[numChunks + 1];
+		for (int c = 1; c < numChunks; c++) {
+			int p = Math.max(start[c - 1], (int) ((long) limit * c / numChunks));
+			while (p < limit && p > 0 && buf.get(p - 1) != '\n') {
+				p++;
+			}
+			start[c] = p;
+		}
+		start[numChunks] = limit;
+
+		//absolute gets don't touch the buffer's position, so all threads can read the same buffer
+		return IntStream.range(0, numChunks).parallel()
+				.mapToObj(c -> parseCsvChunk(buf, start[c], start[c + 1]))
+				.toArray(CsvChunk[]::new);
+	}
+
+	//helper function that parses the lines in buf[from...to-1]
+	private static CsvChunk parseCsvChunk(ByteBuffer buf, int from, int to) {
+		CsvChunk chunk = new CsvChunk();
+		byte[] block = new byte[BLOCK];
+
+		/* bulk copy the chunk out a block at a time, parsing each block's complete lines and carrying
+		its partial last line over to the start of the next block */
+		int carry = 0;
+		int p = from;
+		while (p < to || carry > 0) {
+			int count = Math.min(block.length - carry, to - p);
+			buf.get(p, block, carry, count);
+			p += count;
+			int len = carry + count;
+			int end = len;
+			if (p < to) {
+				while (end > 0 && block[end - 1] != '\n') {
+					end--;
+				}
+				if (end == 0) {
+					//a line longer than the block
+					block = Arrays.copyOf(block, block.length * 2);
+					carry = len;
+					continue;
+				}
+			}
+			parseCsvLines(chunk, block, end);
+			carry = len - end;
+			System.arraycopy(block, end, block, 0, carry);
+		}
+
+		chunk.finish();
+		return chunk;
+	}
+
+	//helper function that parses the lines in b[0...to-1], where the last may have no line break
+	private static void parseCsvLines(CsvChunk chunk, byte[] b, int to) {
+		int p = 0;
+		while (p < to) {
+			int comma = -1;
+			int end = p;
+			for (; end < to && b[end] != '\n'; end++) {
+				if (b[end] == ',' && comma < 0) {
+					comma = end;
+				}
+			}
+
+			//strip a trailing \r and skip blank lines
+			int len = end > p && b[end - 1] == '\r' ? end - 1 : end;
+			if (comma >= 0) {
+				chunk.add(b, p, comma);
+				chunk.add(b, comma + 1, len);
+			} else {
+				for (int x = p; x < len; x++) {
+					if (b[x] != ' ' && b[x] != '\t') {
+						throw new IllegalArgumentException();
+					}
+				}
+			}
+			p = end + 1;
+		}
+	}
+
+	/* the pairs of one chunk of a CSV file, with every ID interned to a chunk-local index in a table
+	keyed on the ID's bytes, so no String is made per occurrence. the IDs stay as bytes until the 
+	chunks are merged, where a String is made only for the first appearance of each ID in the file. 
+	the table is open-addressing with linear probing, at most half full */
+	private static class CsvChunk {
+
+		//chunk-local index of each pair's endpoints, in file order
+		int[] ends = new int[64];
+		int numEnds;
+
+		//number of distinct IDs
+		int numIds;
+
+		//bytes of the distinct IDs back to back, where local ID i ends at idEnd[i]
+		private byte[] idBytes = new byte[256];
+		private int[] idEnd = new int[16];
+		private int[] idHash = new int[16];
+
+		//the ID's hash << 32 | 1 + its local index in each slot, or 0 if it's empty
+		private long[] slots = new long[32];
+
+		//the local IDs grouped by partition, where partition p's are order[partStart[p]...]
+		private int[] order;
+		private int[] partStart;
+
+		/* per local ID, its index in its partition q, or -1-q for the ID's first appearance in the 
+		file, until the partitions' global indices are known */
+		int[] toGlobal;
+
+		//interns line[from...to-1] without surrounding spaces and tabs, and appends its local index
+		void add(byte[] line, int from, int to) {
+			while (from < to && (line[from] == ' ' || line[from] == '\t')) {
+				from++;
+			}
+			while (to > from && (line[to - 1] == ' ' || line[to - 1] == '\t')) {
+				to--;
+			}
+			if (from == to) {
+				throw new IllegalArgumentException();
+			}
+
+			if (numEnds == ends.length) {
+				ends = Arrays.copyOf(ends, numEnds * 2);
+			}
+			ends[numEnds++] = intern(line, from, to - from);
+		}
+
+		//drops the hash table once every ID has been interned, keeping the IDs' bytes and hashes
+		void finish() {
+			slots = null;
+		}
+
+		//drops the IDs' bytes and hashes once they've been merged
+		void dropIds() {
+			idBytes = null;
+			idEnd = null;
+			idHash = null;
+			order = null;
+		}
+
+		//returns which of numParts partitions local ID i falls in by its hash
+		int partOf(int i, int numParts) {
+			return (int) (((idHash[i] & 0xFFFFFFFFL) * numParts) >>> 32);
+		}
+
+		//groups the local IDs by partition, keeping them in local index order within each
+		void partition(int numParts) {
+			partStart = new int[numParts + 1];
+			for (int i = 0; i < numIds; i++) {
+				partStart[partOf(i, numParts) + 1]++;
+			}
+			for (int p = 0; p < numParts; p++) {
+				partStart[p + 1] += partStart[p];
+			}
+			order = new int[numIds];
+			int[] next = Arrays.copyOf(partStart, numParts);
+			for (int i = 0; i < numIds; i++) {
+				order[next[partOf(i, numParts)]++] = i;
+			}
+			toGlobal = new int[numIds];
+		}
+
+		//returns whether local ID i has the same bytes as other's local ID j
+		boolean sameId(int i, CsvChunk other, int j) {
+			int start = i == 0 ? 0 : idEnd[i - 1];
+			int otherStart = j == 0 ? 0 : other.idEnd[j - 1];
+			return Arrays.equals(idBytes, start, idEnd[i], other.idBytes, otherStart, other.idEnd[j]);
+		}
+
+		//returns local ID i as a string
+		String id(int i) {
+			int start = i == 0 ? 0 : idEnd[i - 1];
+			return new String(idBytes, start, idEnd[i] - start, StandardCharsets.UTF_8);
+		}
+
+		//returns the local index of b[from...from+len-1], giving it the next index if it's new
+		private int intern(byte[] b, int from, int len) {
+			int h = GraphSnapshot.hash(b, from, len);
+			int mask = slots.length - 1;
+			int slot = h & mask;
+			for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+				int i = (int) slots[slot] - 1;
+				int start = i == 0 ? 0 : idEnd[i - 1];
+				if ((int) (slots[slot] >>> 32) == h
+						&& Arrays.equals(idBytes, start, idEnd[i], b, from, from + len)) {
+					return i;
+				}
+			}
+
+			//copy the new ID's bytes to the end of idBytes
+			int start = numIds == 0 ? 0 : idEnd[numIds - 1];
+			if (start + len > idBytes.length) {
+				idBytes = Arrays.copyOf(idBytes, Math.max(start + len, idBytes.length * 2));
+			}
+			System.arraycopy(b, from, idBytes, start, len);
+			if (numIds == idEnd.length) {
+				idEnd = Arrays.copyOf(idEnd, numIds * 2);
+				idHash = Arrays.copyOf(idHash, numIds * 2);
+			}
+			idEnd[numIds] = start + len;
+			idHash[numIds] = h;
+			slots[slot] = (long) h << 32 | ++numIds;
+			if (numIds * 2 > slots.length) {
+				rehash();
+			}
+			return numIds - 1;
+		}
+
+		//doubles the number of slots, placing each ID by its stored hash
+		private void rehash() {
+			slots = new long[slots.length * 2];
+			int mask = slots.length - 1;
+			for (int i = 0; i < numIds; i++) {
+				int slot = idHash[i] & mask;
+				while (slots[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = (long) idHash[i] << 32 | i + 1;
+			}
+		}
+	}
+
+	//the distinct IDs of one partition of the hashes across every chunk, matched up by their bytes
+	private static class IdPartition {
+
+		//per chunk, how many IDs make their first appearance in the file there
+		final int[] firsts;
+
+		//the global index of each of the partition's IDs, filled in once the chunks' bases are known
+		int[] global;
+
+		/* chunk << 32 | local index of each ID's first appearance, and the ID's hash << 32 | 1 + its
+		index in each slot, or 0 if it's empty */
+		private long[] first = new long[16];
+		private long[] slots = new long[32];
+		private int size;
+
+		//walks partition p's IDs of each chunk in file order, setting their toGlobal entries
+		IdPartition(CsvChunk[] chunks, int p) {
+			firsts = new int[chunks.length];
+			for (int c = 0; c < chunks.length; c++) {
+				CsvChunk chunk = chunks[c];
+				for (int k = chunk.partStart[p]; k < chunk.partStart[p + 1]; k++) {
+					int i = chunk.order[k];
+					chunk.toGlobal[i] = find(chunks, c, i);
+				}
+			}
+			global = new int[size];
+		}
+
+		//returns the index of chunk c's local ID i, or -1-index if this is its first appearance
+		private int find(CsvChunk[] chunks, int c, int i) {
+			int h = chunks[c].idHash[i];
+			int mask = slots.length - 1;
+			int slot = h & mask;
+			for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+				int q = (int) slots[slot] - 1;
+				if ((int) (slots[slot] >>> 32) == h
+						&& chunks[c].sameId(i, chunks[(int) (first[q] >>> 32)], (int) first[q])) {
+					return q;
+				}
+			}
+
+			if (size == first.length) {
+				first = Arrays.copyOf(first, size * 2);
+			}
+			first[size] = (long) c << 32 | i;
+			firsts[c]++;
+			slots[slot] = (long) h << 32 | ++size;
+			if (size * 2 > slots.length) {
+				rehash();
+			}
+			return -size;
+		}
+
+		//doubles the number of slots, placing each ID by the hash stored in its old slot
+		private void rehash() {
+			long[] old = slots;
+			slots = new long[old.length * 2];
+			int mask = slots.length - 1;
+			for (long s : old) {
+				if (s != 0) {
+					int slot = (int) (s >>> 32) & mask;
+					while (slots[slot] != 0) {
+						slot = (slot + 1) & mask;
+					}
+					slots[slot] = s;
+				}
+			}
+		}
+	}
+
+	/** Loads a binary file of big-endian int pairs. The user for int ID x has userID
+	 *  Integer.toString(x).
+	 *  @param file The file to load
+	 *  @param sv   The site version that every user starts on
+	 *  @return a graph with one user per distinct ID and one edge per distinct pair
+	 */
+	public static CompactUserGraph loadBinary(Path file, int sv) throws IOException {
+		if (file == null) {
+			throw new NullPointerException();
+		}
+
+		int[] raw;
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = ch.size();
+			if (size % 8 != 0 || size / 4 > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException();
+			}
+
+			//copy the ints out of each mapped window in parallel slices
+			raw = new int[(int) (size / 4)];
+			long pos = 0;
+			while (pos < size) {
+				ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, size - pos));
+				int base = (int) (pos / 4);
+				int count = buf.limit() / 4;
+				int slices = Runtime.getRuntime().availableProcessors() * 4;
+				int slice = Math.max(MIN_CHUNK / 4, count / slices + 1);
+				IntStream.range(0, (count + slice - 1) / slice).parallel().forEach(c -> {
+					int end = Math.min(count, (c + 1) * slice);
+					for (int x = c * slice; x < end; x++) {
+						raw[base + x] = buf.getInt(x * 4);
+					}
+				});
+				pos += buf.limit();
+			}
+		}
+
+		//the distinct IDs in sorted order, a user's dense index is the rank of its ID
+		int[] distinct = raw.clone();
+		Arrays.parallelSort(distinct);
+		int n = 0;
+		for (int x = 0; x < distinct.length; x++) {
+			if (n == 0 || distinct[x] != distinct[n - 1]) {
+				distinct[n++] = distinct[x];
+			}
+		}
+
+		User[] users = new User[n];
+		IntStream.range(0, n).parallel()
+				.forEach(i -> users[i] = new User(Integer.toString(distinct[i]), sv));
+		UserIdTable ids = new UserIdTable(n);
+		for (User u : users) {
+			ids.intern(u.getUserID());
+		}
+
+		int m = raw.length / 2;
+		int[] from = new int[m];
+		int[] to = new int[m];
+		final int numIds = n;
+		IntStream.range(0, m).parallel().forEach(k -> {
+			from[k] = Arrays.binarySearch(distinct, 0, numIds, raw[2 * k]);
+			to[k] = Arrays.binarySearch(distinct, 0, numIds, raw[2 * k + 1]);
+		});
+
+		return CompactUserGraph.fromEdges(users, ids, from, to, m);
+	}
+
+}
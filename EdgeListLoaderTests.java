@@ -0,0 +1,105 @@
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class EdgeListLoaderTests {
+
+	//returns the user in g with the given ID, or null if there isn't one
+	private static User find(CompactUserGraph g, String id) {
+		for (int i = 0; i < g.size(); i++) {
+			if (g.getUser(i).toString().equals(id)) {
+				return g.getUser(i);
+			}
+		}
+		return null;
+	}
+	
+	//testing a CSV file with repeated pairs, blank lines, spaces and windows line breaks
+	@Test
+	public void ellCsvTest() throws IOException {
+		File f = File.createTempFile("edges", ".csv");
+		f.deleteOnExit();
+		Files.write(f.toPath(), "a,b\r\n b , c\n\na,b\nd,e\nf,f".getBytes(StandardCharsets.UTF_8));
+		
+		CompactUserGraph g = EdgeListLoader.loadCsv(f.toPath(), 1);
+		assertEquals(g.size(), 6);
+		
+		g.totalInfection(find(g, "c"), 10);
+		assertEquals(find(g, "a").getSiteAccessed(), 10);
+		assertEquals(find(g, "b").getSiteAccessed(), 10);
+		assertEquals(find(g, "c").getSiteAccessed(), 10);
+		assertEquals(find(g, "d").getSiteAccessed(), 1);
+		assertEquals(find(g, "e").getSiteAccessed(), 1);
+		assertEquals(find(g, "f").getSiteAccessed(), 1);
+	}
+	
+	//testing a CSV file big enough to be parsed in several chunks, with IDs appearing in many of them
+	@Test
+	public void ellCsvChunksTest() throws IOException {
+		File f = File.createTempFile("edges", ".csv");
+		f.deleteOnExit();
+		
+		//each line joins u<x> to hub<x % 10>, so the hubs appear in every chunk
+		StringBuilder sb = new StringBuilder();
+		int numLines = 300000;
+		for (int x = 0; x < numLines; x++) {
+			sb.append("u").append(x).append(" , hub").append(x % 10).append(x % 3 == 0 ? "\r\n" : "\n");
+		}
+		Files.write(f.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+		assertTrue(f.length() > 3 << 20);
+		
+		CompactUserGraph g = EdgeListLoader.loadCsv(f.toPath(), 1);
+		assertEquals(g.size(), numLines + 10);
+		
+		//indices follow each ID's first appearance in the file
+		assertEquals(g.getUser(0).getUserID(), "u0");
+		assertEquals(g.getUser(1).getUserID(), "hub0");
+		assertEquals(g.getUser(2 * 10 - 1).getUserID(), "hub9");
+		assertEquals(g.getUser(2 * 10).getUserID(), "u10");
+		assertEquals(g.getUser(numLines + 9).getUserID(), "u" + (numLines - 1));
+		
+		g.totalInfection(find(g, "hub3"), 10);
+		assertEquals(g.countVersion(10), numLines / 10 + 1);
+		assertEquals(find(g, "u" + (numLines - 7)).getSiteAccessed(), 10);
+	}
+	
+	//testing a CSV line without a comma
+	@Test(expected = IllegalArgumentException.class)
+	public void ellMalformedCsvTest() throws IOException {
+		File f = File.createTempFile("edges", ".csv");
+		f.deleteOnExit();
+		Files.write(f.toPath(), "a,b\nc\n".getBytes(StandardCharsets.UTF_8));
+		EdgeListLoader.loadCsv(f.toPath(), 1);
+	}
+	
+	//testing a binary file
+	@Test
+	public void ellBinaryTest() throws IOException {
+		File f = File.createTempFile("edges", ".bin");
+		f.deleteOnExit();
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(f))) {
+			int[] pairs = {7, 3, 3, 42, 42, 7, 5, 6, 6, 5};
+			for (int x : pairs) {
+				out.writeInt(x);
+			}
+		}
+		
+		CompactUserGraph g = EdgeListLoader.loadBinary(f.toPath(), 1);
+		assertEquals(g.size(), 5);
+		
+		g.limitedInfection(2, 20);
+		assertEquals(find(g, "5").getSiteAccessed(), 20);
+		assertEquals(find(g, "6").getSiteAccessed(), 20);
+		assertEquals(find(g, "3").getSiteAccessed(), 1);
+		assertEquals(find(g, "7").getSiteAccessed(), 1);
+		assertEquals(find(g, "42").getSiteAccessed(), 1);
+	}
+
+}
@@ -0,0 +1,89 @@
+import java.util.Arrays;
+import java.util.Random;
+
+public class GraphGenerators {
+	
+	/** Synthetic coach/student graphs used by the benchmarks. Each generator returns an edge list as
+	 * a flat array where edges[2k] and edges[2k+1] are the dense indices of the two users joined by 
+	 * edge k, so the same edges can be replayed through addUser/addEdge or used to build a graph 
+	 * directly. All generators are deterministic for a given seed.
+	 */
+	
+	//classrooms of one coach and many students, with sizes drawn from a power law with this exponent
+	private static final double CLASSROOM_EXPONENT = 2.0;
+	
+	//returns n new users with IDs "u0"..."u(n-1)", all on site version 0
+	public static User[] newUsers(int n) {
+		User[] users = new User[n];
+		for (int i = 0; i < n; i++) {
+			users[i] = new User("u" + i, 0);
+		}
+		return users;
+	}
+	
+	//returns a graph containing users, with the edges in edges
+	public static UserGraph build(User[] users, int[] edges) {
+		UserGraph g = new UserGraph();
+		for (User u : users) {
+			g.addUser(u);
+		}
+		for (int k = 0; k < edges.length; k += 2) {
+			g.addEdge(users[edges[k]], users[edges[k + 1]]);
+		}
+		return g;
+	}
+	
+	/* n users split into classrooms, each a star from one coach to its students. classroom sizes 
+	follow a power law, so there are many singletons and pairs and a few very large classrooms */
+	public static int[] powerLawClassrooms(int n, long seed) {
+		Random r = new Random(seed);
+		int[] edges = new int[2 * n];
+		int m = 0;
+		int coach = 0;
+		while (coach < n) {
+			//inverse transform sampling of a Pareto distribution with minimum 1
+			int size = (int) Math.min(n - coach,
+					Math.pow(1 - r.nextDouble(), -1 / (CLASSROOM_EXPONENT - 1)));
+			for (int s = coach + 1; s < coach + size; s++) {
+				edges[m++] = coach;
+				edges[m++] = s;
+			}
+			coach += size;
+		}
+		return Arrays.copyOf(edges, m);
+	}
+	
+	//n users in a single coach -> student -> ... chain
+	public static int[] chain(int n) {
+		int[] edges = new int[2 * Math.max(n - 1, 0)];
+		for (int i = 1; i < n; i++) {
+			edges[2 * i - 2] = i - 1;
+			edges[2 * i - 1] = i;
+		}
+		return edges;
+	}
+	
+	/* one giant CC containing the first giantFraction of the n users, joined by a random tree plus as
+	many random extra edges, and the rest of the users left as singletons */
+	public static int[] giantPlusSingletons(int n, double giantFraction, long seed) {
+		Random r = new Random(seed);
+		int giant = (int) (n * giantFraction);
+		int[] edges = new int[4 * Math.max(giant - 1, 0)];
+		int m = 0;
+		for (int i = 1; i < giant; i++) {
+			edges[m++] = r.nextInt(i);
+			edges[m++] = i;
+		}
+		for (int i = 1; i < giant; i++) {
+			edges[m++] = r.nextInt(giant);
+			edges[m++] = r.nextInt(giant);
+		}
+		return edges;
+	}
+	
+	//n users with no edges
+	public static int[] singletons(int n) {
+		return new int[0];
+	}
+	
+}
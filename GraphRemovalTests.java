@@ -0,0 +1,179 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GraphRemovalTests {
+
+	//returns the size of each user's CC, found by a plain search over the users' neighbor sets
+	private static HashMap<User, Integer> bruteForceSizes(ArrayList<User> users) {
+		HashMap<User, Integer> sizes = new HashMap<User, Integer>();
+		for (User u : users) {
+			if (sizes.containsKey(u)) {
+				continue;
+			}
+			HashSet<User> cc = new HashSet<User>();
+			ArrayList<User> todo = new ArrayList<User>();
+			cc.add(u);
+			todo.add(u);
+			while (!todo.isEmpty()) {
+				for (User v : todo.remove(todo.size() - 1).getNeighbors()) {
+					if (cc.add(v)) {
+						todo.add(v);
+					}
+				}
+			}
+			for (User v : cc) {
+				sizes.put(v, cc.size());
+			}
+		}
+		return sizes;
+	}
+	
+	//testing that removing a bridge splits the CC, and removing a cycle edge doesn't
+	@Test
+	public void removeEdgeTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 1);
+		User c = new User("c", 1);
+		User d = new User("d", 1);
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addUser(d);
+		g.addEdge(a, b);
+		g.addEdge(b, c);
+		g.addEdge(c, a);
+		g.addEdge(c, d);
+		
+		assertTrue(g.removeEdge(a, b));
+		assertFalse(g.removeEdge(b, a));
+		assertEquals(g.numComponents(), 1);
+		assertEquals(g.componentSize(a), 4);
+		
+		assertTrue(g.removeEdge(d, c));
+		assertEquals(g.numComponents(), 2);
+		assertEquals(g.componentSize(a), 3);
+		assertEquals(g.componentSize(d), 1);
+		
+		g.limitedInfection(1, 5);
+		assertEquals(d.getSiteAccessed(), 5);
+		assertEquals(a.getSiteAccessed(), 1);
+	}
+	
+	//testing that removing a user splits its CC and moves the last user into its index
+	@Test
+	public void removeUserTest() {
+		UserGraph g = new UserGraph();
+		User hub = new User("hub", 1);
+		g.addUser(hub);
+		User[] leaves = new User[3];
+		for (int x = 0; x < 3; x++) {
+			leaves[x] = new User("leaf" + x, 1);
+			g.addUser(leaves[x]);
+			g.addEdge(hub, leaves[x]);
+		}
+		g.addEdge(leaves[0], leaves[1]);
+		
+		hub.access(4);
+		assertTrue(g.removeUser(hub));
+		assertFalse(g.removeUser(hub));
+		assertEquals(g.size(), 3);
+		assertEquals(g.numComponents(), 2);
+		assertEquals(g.componentSize(leaves[0]), 2);
+		assertEquals(g.componentSize(leaves[2]), 1);
+		assertEquals(hub.getNeighbors().size(), 0);
+		assertEquals(leaves[2].getNeighbors().size(), 0);
+		
+		//the removed user keeps its version, and the last user now has index 0
+		assertEquals(hub.getSiteAccessed(), 4);
+		assertEquals(g.indexOf(leaves[2]), 0);
+		assertSame(g.getUser(0), leaves[2]);
+		assertEquals(g.indexOf("hub"), -1);
+		g.totalInfection(0, 6);
+		assertEquals(leaves[2].getSiteAccessed(), 6);
+		assertEquals(hub.getSiteAccessed(), 4);
+		
+		//the ID can be used again
+		User again = new User("hub", 2);
+		g.addUser(again);
+		g.addEdge(again, leaves[2]);
+		assertEquals(g.componentSize(again), 2);
+	}
+	
+	//testing that plans go stale when a removal splits a CC, and snapshots keep their versions
+	@Test
+	public void removeStaleTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 1);
+		User c = new User("c", 1);
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addEdge(a, b);
+		g.addEdge(b, c);
+		CompactUserGraph snapshot = new CompactUserGraph(g);
+		
+		InfectionPlan plan = g.planLimitedInfection(3);
+		g.removeEdge(a, b);
+		assertFalse(plan.isValid());
+		
+		g.removeUser(a);
+		snapshot.totalInfection(snapshot.indexOf("a"), 9);
+		assertEquals(a.getSiteAccessed(), 1);
+		assertEquals(c.getSiteAccessed(), 1);
+		g.totalInfection(c, 7);
+		assertEquals(b.getSiteAccessed(), 7);
+		assertEquals(g.countVersion(7), 2);
+	}
+	
+	//testing random churn against a brute-force search
+	@Test
+	public void removeRandomTest() {
+		Random r = new Random(17);
+		for (int t = 0; t < 30; t++) {
+			UserGraph g = new UserGraph();
+			ArrayList<User> users = new ArrayList<User>();
+			int id = 0;
+			for (int step = 0; step < 400; step++) {
+				int op = r.nextInt(10);
+				if (op < 3 || users.size() < 2) {
+					User u = new User("u" + id++, 0);
+					g.addUser(u);
+					users.add(u);
+				} else if (op < 7) {
+					g.addEdge(users.get(r.nextInt(users.size())), users.get(r.nextInt(users.size())));
+				} else if (op < 9) {
+					User u = users.get(r.nextInt(users.size()));
+					if (!u.getNeighbors().isEmpty()) {
+						g.removeEdge(u, u.getNeighbors().iterator().next());
+					}
+				} else {
+					User u = users.remove(r.nextInt(users.size()));
+					assertTrue(g.removeUser(u));
+				}
+			}
+			
+			//every user keeps a distinct index, and each CC's size matches a plain search
+			HashMap<User, Integer> sizes = bruteForceSizes(users);
+			HashSet<Integer> indices = new HashSet<Integer>();
+			double numCC = 0;
+			assertEquals(g.size(), users.size());
+			for (User u : users) {
+				assertEquals(g.componentSize(u), (int) sizes.get(u));
+				assertSame(g.getUser(g.indexOf(u)), u);
+				indices.add(g.indexOf(u));
+				numCC += 1.0 / sizes.get(u);
+			}
+			assertEquals(indices.size(), users.size());
+			assertEquals(g.numComponents(), (int) Math.round(numCC));
+		}
+	}
+
+}
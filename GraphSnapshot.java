@@ -0,0 +1,392 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+public class GraphSnapshot {
+	
+	/** Binary snapshot of a CompactUserGraph, so a service can restart from a file instead of 
+	 * rebuilding its graph from raw edge pairs. The file holds everything limited_infection needs: 
+	 * the user IDs, the CSR adjacency, every user's site version and the CCs, so nothing has to be 
+	 * parsed, interned from scratch or traversed on load. <p>
+	 * 
+	 * The file is a fixed header followed by flat little-endian int sections and the IDs:
+	 * <pre>
+	 *   int  MAGIC, int VERSION, int n, int numTargets, int numCC, int idBytes, int numSlots
+	 *   int[n+1]        offsets
+	 *   int[numTargets] targets
+	 *   int[n]          site versions
+	 *   int[numCC]      a user in each CC (its lowest index)
+	 *   int[numCC]      size of each CC
+	 *   int[n]          the CC of each user
+	 *   int[n]          end of each user's ID in the ID bytes
+	 *   int[numSlots]   hash table of the IDs, 1 + the index of the ID in each slot or 0 if it's empty
+	 *   byte[idBytes]   the UTF-8 IDs, back to back
+	 * </pre>
+	 * 
+	 * write streams the sections out in order through one buffer, into a temporary file that is then
+	 * moved over the target, so a crash mid-write never leaves a half-written snapshot behind. load 
+	 * maps the file and copies each section out with a bulk get. Users are created the first time 
+	 * they're asked for, since infections only need indices. map instead reads the file in place as 
+	 * an OffHeapUserGraph, so only the site versions are copied and the rest of the pages are shared 
+	 * by every process that maps the file. A file with the wrong magic number or format version is 
+	 * rejected rather than misread.
+	 */
+	
+	//"UGS1" as an int
+	static final int MAGIC = 0x55475331;
+	
+	//bumped whenever the layout changes
+	static final int VERSION = 2;
+	
+	//largest window of the file that is mapped at once, a multiple of 4 so no int straddles two
+	private static final int WINDOW = 1 << 30;
+	
+	//size of the buffer write streams through
+	private static final int BUFFER = 1 << 20;
+	
+	/** Writes g to file, replacing whatever was there.
+	 *  @param g    The graph to write
+	 *  @param file The file to write it to
+	 */
+	public static void write(CompactUserGraph g, Path file) throws IOException {
+		if (g == null || file == null) {
+			throw new NullPointerException();
+		}
+		int n = g.size();
+		int[] offsets = g.offsets();
+		int[] targets = g.targets();
+		SiteVersionColumn versions = g.versions();
+		int[][] cc = g.components(null);
+		int[] labels = labels(offsets, targets, cc[0]);
+		
+		//encode the IDs up front, since the header needs their total length
+		byte[][] idBytes = encodeIds(g.ids());
+		int[] idEnds = idEnds(idBytes);
+		int[] slots = slotTable(idBytes);
+		
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+			
+			int[] header = {MAGIC, VERSION, n, offsets[n], cc[1].length, n == 0 ? 0 : idEnds[n - 1], 
+					slots.length};
+			writeInts(ch, buf, header, header.length);
+			writeInts(ch, buf, offsets, n + 1);
+			writeInts(ch, buf, targets, offsets[n]);
+			for (int i = 0; i < n; i++) {
+				if (buf.remaining() < 4) {
+					flush(ch, buf);
+				}
+				buf.putInt(versions.get(i));
+			}
+			writeInts(ch, buf, cc[0], cc[0].length);
+			writeInts(ch, buf, cc[1], cc[1].length);
+			writeInts(ch, buf, labels, n);
+			writeInts(ch, buf, idEnds, n);
+			writeInts(ch, buf, slots, slots.length);
+			for (int i = 0; i < n; i++) {
+				for (int p = 0; p < idBytes[i].length;) {
+					if (!buf.hasRemaining()) {
+						flush(ch, buf);
+					}
+					int len = Math.min(buf.remaining(), idBytes[i].length - p);
+					buf.put(idBytes[i], p, len);
+					p += len;
+				}
+			}
+			flush(ch, buf);
+			ch.force(false);
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	//helper function that streams a[0...len-1] through buf into ch
+	private static void writeInts(FileChannel ch, ByteBuffer buf, int[] a, int len) 
+			throws IOException {
+		for (int p = 0; p < len;) {
+			if (buf.remaining() < 4) {
+				flush(ch, buf);
+			}
+			int count = Math.min(buf.remaining() / 4, len - p);
+			buf.asIntBuffer().put(a, p, count);
+			buf.position(buf.position() + count * 4);
+			p += count;
+		}
+	}
+	
+	//helper function that writes out everything in buf and empties it
+	private static void flush(FileChannel ch, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			ch.write(buf);
+		}
+		buf.clear();
+	}
+	
+	//returns the UTF-8 bytes of every ID, by index
+	static byte[][] encodeIds(UserIdTable ids) {
+		byte[][] idBytes = new byte[ids.size()][];
+		long total = 0;
+		for (int i = 0; i < idBytes.length; i++) {
+			idBytes[i] = ids.getID(i).getBytes(StandardCharsets.UTF_8);
+			total += idBytes[i].length;
+		}
+		if (total > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException();
+		}
+		return idBytes;
+	}
+	
+	//returns where each ID ends when the IDs are stored back to back
+	static int[] idEnds(byte[][] idBytes) {
+		int[] idEnds = new int[idBytes.length];
+		int end = 0;
+		for (int i = 0; i < idBytes.length; i++) {
+			end += idBytes[i].length;
+			idEnds[i] = end;
+		}
+		return idEnds;
+	}
+	
+	/* returns the CC number of every user, given a user in each CC. each CC is walked with an explicit
+	stack, as in CompactUserGraph */
+	static int[] labels(int[] offsets, int[] targets, int[] ccUser) {
+		int n = offsets.length - 1;
+		int[] labels = new int[n];
+		int[] stack = new int[n];
+		boolean[] seen = new boolean[n];
+		for (int c = 0; c < ccUser.length; c++) {
+			seen[ccUser[c]] = true;
+			stack[0] = ccUser[c];
+			int top = 1;
+			while (top > 0) {
+				int w = stack[--top];
+				labels[w] = c;
+				for (int e = offsets[w]; e < offsets[w + 1]; e++) {
+					if (!seen[targets[e]]) {
+						seen[targets[e]] = true;
+						stack[top++] = targets[e];
+					}
+				}
+			}
+		}
+		return labels;
+	}
+	
+	/* returns an open-addressing hash table of the IDs with linear probing, at most half full. each 
+	slot holds 1 + the index of its ID, or 0 if it's empty */
+	static int[] slotTable(byte[][] idBytes) {
+		int n = idBytes.length;
+		if (n > 1 << 29) {
+			throw new IllegalArgumentException();
+		}
+		int[] slots = new int[Integer.highestOneBit(Math.max(8, n) * 2 - 1) * 2];
+		int mask = slots.length - 1;
+		for (int i = 0; i < n; i++) {
+			int slot = hash(idBytes[i], 0, idBytes[i].length) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = i + 1;
+		}
+		return slots;
+	}
+	
+	//FNV-1a hash of b[from...from+len-1], spread so that similar IDs don't land in neighboring slots
+	static int hash(byte[] b, int from, int len) {
+		int h = 0x811C9DC5;
+		for (int p = from; p < from + len; p++) {
+			h = (h ^ (b[p] & 0xFF)) * 0x01000193;
+		}
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	//where each section of a snapshot starts, read from its header
+	private static class Layout {
+		int n;
+		int numTargets;
+		int numCC;
+		int idBytes;
+		int numSlots;
+		long offsets;
+		long targets;
+		long versions;
+		long ccUser;
+		long ccSize;
+		long labels;
+		long idEnds;
+		long slots;
+		long ids;
+		
+		//reads the header of the file open in ch, and checks that its size matches
+		Layout(FileChannel ch) throws IOException {
+			long size = ch.size();
+			if (size < 8) {
+				throw new IllegalArgumentException();
+			}
+			int[] start = new int[2];
+			readInts(ch, 0, start);
+			if (start[0] != MAGIC || start[1] != VERSION) {
+				throw new IllegalArgumentException();
+			}
+			int[] header = new int[7];
+			if (size < 4L * header.length) {
+				throw new IllegalArgumentException();
+			}
+			readInts(ch, 0, header);
+			n = header[2];
+			numTargets = header[3];
+			numCC = header[4];
+			idBytes = header[5];
+			numSlots = header[6];
+			if (n < 0 || numTargets < 0 || numCC < 0 || numCC > n || idBytes < 0 
+					|| Integer.bitCount(numSlots) != 1) {
+				throw new IllegalArgumentException();
+			}
+			
+			offsets = 4L * header.length;
+			targets = offsets + 4L * (n + 1);
+			versions = targets + 4L * numTargets;
+			ccUser = versions + 4L * n;
+			ccSize = ccUser + 4L * numCC;
+			labels = ccSize + 4L * numCC;
+			idEnds = labels + 4L * n;
+			slots = idEnds + 4L * n;
+			ids = slots + 4L * numSlots;
+			if (size != ids + idBytes) {
+				throw new IllegalArgumentException();
+			}
+		}
+	}
+	
+	/** Loads a graph written by write.
+	 *  @param file The file to load
+	 *  @return the graph, with the same indices, site versions and CCs it was written with
+	 */
+	public static CompactUserGraph load(Path file) throws IOException {
+		if (file == null) {
+			throw new NullPointerException();
+		}
+		
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			Layout l = new Layout(ch);
+			int n = l.n;
+			int numTargets = l.numTargets;
+			int numCC = l.numCC;
+			
+			int[] offsets = new int[n + 1];
+			readInts(ch, l.offsets, offsets);
+			int[] targets = new int[numTargets];
+			readInts(ch, l.targets, targets);
+			int[] versions = new int[n];
+			readInts(ch, l.versions, versions);
+			int[] ccUser = new int[numCC];
+			readInts(ch, l.ccUser, ccUser);
+			int[] ccSize = new int[numCC];
+			readInts(ch, l.ccSize, ccSize);
+			int[] idEnds = new int[n];
+			readInts(ch, l.idEnds, idEnds);
+			
+			//a corrupt file must not send a traversal out of bounds later
+			if (offsets[0] != 0 || offsets[n] != numTargets) {
+				throw new IllegalArgumentException();
+			}
+			for (int i = 0; i < n; i++) {
+				if (offsets[i] > offsets[i + 1]) {
+					throw new IllegalArgumentException();
+				}
+			}
+			if (IntStream.range(0, numTargets).parallel().anyMatch(e -> targets[e] < 0 || targets[e] >= n)) {
+				throw new IllegalArgumentException();
+			}
+			for (int c = 0; c < numCC; c++) {
+				if (ccUser[c] < 0 || ccUser[c] >= n || ccSize[c] <= 0) {
+					throw new IllegalArgumentException();
+				}
+			}
+			
+			//intern the IDs in index order, so every user keeps the index it was written with
+			UserIdTable ids = new UserIdTable(n);
+			int start = 0;
+			long mapped = 0;
+			ByteBuffer window = null;
+			byte[] id = new byte[64];
+			for (int i = 0; i < n; i++) {
+				int len = idEnds[i] - start;
+				if (len < 0 || idEnds[i] > l.idBytes) {
+					throw new IllegalArgumentException();
+				}
+				
+				//remap whenever the next ID runs past the end of the current window
+				long from = l.ids + start;
+				if (window == null || from + len > mapped + window.limit()) {
+					mapped = from;
+					window = ch.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW, ch.size() - from));
+				}
+				if (len > id.length) {
+					id = new byte[Math.max(len, id.length * 2)];
+				}
+				window.get((int) (from - mapped), id, 0, len);
+				if (ids.intern(new String(id, 0, len, StandardCharsets.UTF_8)) != i) {
+					throw new IllegalArgumentException();
+				}
+				start = idEnds[i];
+			}
+			
+			return new CompactUserGraph(ids, offsets, targets, new SiteVersionColumn(versions), ccUser, 
+					ccSize);
+		}
+	}
+	
+	/** Maps a graph written by write in place, without copying it onto the heap. The adjacency, CCs 
+	 *  and IDs are mapped read-only, and the site versions are copied into a direct buffer, so 
+	 *  infections on the graph never change the file. Unlike load, the file's contents aren't checked 
+	 *  beyond its header and size, since that would mean reading all of it.
+	 *  @param file The file to map
+	 *  @return the graph, with the same indices, site versions and CCs it was written with
+	 */
+	public static OffHeapUserGraph map(Path file) throws IOException {
+		if (file == null) {
+			throw new NullPointerException();
+		}
+		
+		//mappings stay valid after the channel is closed
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			Layout l = new Layout(ch);
+			FileChannel.MapMode ro = FileChannel.MapMode.READ_ONLY;
+			return new OffHeapUserGraph(l.n, 
+					OffHeapInts.map(ch, ro, l.offsets, l.n + 1L), 
+					OffHeapInts.map(ch, ro, l.targets, l.numTargets), 
+					OffHeapInts.copyOf(OffHeapInts.map(ch, ro, l.versions, l.n)), 
+					OffHeapInts.map(ch, ro, l.ccUser, l.numCC), 
+					OffHeapInts.map(ch, ro, l.ccSize, l.numCC), 
+					OffHeapInts.map(ch, ro, l.labels, l.n), 
+					OffHeapInts.map(ch, ro, l.idEnds, l.n), 
+					OffHeapInts.map(ch, ro, l.slots, l.numSlots), 
+					ch.map(ro, l.ids, l.idBytes));
+		}
+	}
+	
+	//helper function that copies ints from the file at pos into a
+	private static void readInts(FileChannel ch, long pos, int[] a) throws IOException {
+		for (int p = 0; p < a.length;) {
+			int count = Math.min(WINDOW / 4, a.length - p);
+			IntBuffer ints = ch.map(FileChannel.MapMode.READ_ONLY, pos, count * 4L)
+					.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			ints.get(a, p, count);
+			pos += count * 4L;
+			p += count;
+		}
+	}
+	
+}
@@ -0,0 +1,122 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class GraphSnapshotTests {
+
+	//builds a graph with CCs {a, b, c}, {d, e} and {f}, where only a is on version 2
+	private static CompactUserGraph sample() {
+		UserGraph g = new UserGraph();
+		String[] names = {"a", "b", "c", "d", "e", "\u00e9t\u00e9"};
+		User[] u = new User[names.length];
+		for (int i = 0; i < names.length; i++) {
+			u[i] = new User(names[i], i == 0 ? 2 : 1);
+			g.addUser(u[i]);
+		}
+		g.addEdge(u[0], u[1]);
+		g.addEdge(u[1], u[2]);
+		g.addEdge(u[3], u[4]);
+		return new CompactUserGraph(g);
+	}
+	
+	//testing that a loaded snapshot has the same users, indices, versions and edges
+	@Test
+	public void snapRoundTripTest() throws IOException {
+		File f = File.createTempFile("graph", ".snap");
+		f.deleteOnExit();
+		CompactUserGraph c = sample();
+		GraphSnapshot.write(c, f.toPath());
+		
+		CompactUserGraph loaded = GraphSnapshot.load(f.toPath());
+		assertEquals(loaded.size(), c.size());
+		for (int i = 0; i < c.size(); i++) {
+			assertEquals(loaded.getUser(i).getUserID(), c.getUser(i).getUserID());
+			assertEquals(loaded.getSiteAccessed(i), c.getSiteAccessed(i));
+			assertEquals(loaded.indexOf(c.getUser(i).getUserID()), i);
+		}
+		assertEquals(loaded.getUser(0).getSiteAccessed(), 2);
+		
+		//the CCs come back too, so limited_infection picks {d, e} and {f} for n = 3
+		loaded.perfectLimitedInfection(3, 7);
+		assertEquals(loaded.countVersion(7), 3);
+		assertEquals(loaded.getSiteAccessed(loaded.indexOf("d")), 7);
+		assertEquals(loaded.getSiteAccessed(loaded.indexOf("\u00e9t\u00e9")), 7);
+		
+		loaded.totalInfection(loaded.indexOf("c"), 8);
+		assertEquals(loaded.countVersion(8), 3);
+		assertEquals(c.countVersion(8), 0);
+	}
+	
+	//testing that users of a loaded snapshot are created once and see the snapshot's versions
+	@Test
+	public void snapLazyUsersTest() throws IOException {
+		File f = File.createTempFile("graph", ".snap");
+		f.deleteOnExit();
+		GraphSnapshot.write(sample(), f.toPath());
+		
+		CompactUserGraph loaded = GraphSnapshot.load(f.toPath());
+		User b = loaded.getUser(loaded.indexOf("b"));
+		assertSame(loaded.getUser(loaded.indexOf("b")), b);
+		assertEquals(loaded.indexOf(b), loaded.indexOf("b"));
+		assertEquals(loaded.indexOf(new User("b", 1)), -1);
+		
+		loaded.totalInfection(b, 5);
+		assertEquals(b.getSiteAccessed(), 5);
+		b.access(6);
+		assertEquals(loaded.getSiteAccessed(loaded.indexOf("b")), 6);
+	}
+	
+	//testing that writing again replaces the old snapshot, and empty graphs round trip
+	@Test
+	public void snapOverwriteTest() throws IOException {
+		File f = File.createTempFile("graph", ".snap");
+		f.deleteOnExit();
+		GraphSnapshot.write(sample(), f.toPath());
+		GraphSnapshot.write(new CompactUserGraph(new UserGraph()), f.toPath());
+		
+		CompactUserGraph loaded = GraphSnapshot.load(f.toPath());
+		assertEquals(loaded.size(), 0);
+		loaded.limitedInfection(5, 1);
+	}
+	
+	//testing that a file that isn't a snapshot is rejected
+	@Test(expected = IllegalArgumentException.class)
+	public void snapBadMagicTest() throws IOException {
+		File f = File.createTempFile("graph", ".snap");
+		f.deleteOnExit();
+		GraphSnapshot.write(sample(), f.toPath());
+		byte[] bytes = Files.readAllBytes(f.toPath());
+		bytes[0] ^= 1;
+		Files.write(f.toPath(), bytes);
+		GraphSnapshot.load(f.toPath());
+	}
+	
+	//testing that a snapshot in another format version is rejected
+	@Test(expected = IllegalArgumentException.class)
+	public void snapBadVersionTest() throws IOException {
+		File f = File.createTempFile("graph", ".snap");
+		f.deleteOnExit();
+		GraphSnapshot.write(sample(), f.toPath());
+		byte[] bytes = Files.readAllBytes(f.toPath());
+		bytes[4] = 1;
+		Files.write(f.toPath(), bytes);
+		GraphSnapshot.load(f.toPath());
+	}
+	
+	//testing that a truncated snapshot is rejected
+	@Test(expected = IllegalArgumentException.class)
+	public void snapTruncatedTest() throws IOException {
+		File f = File.createTempFile("graph", ".snap");
+		f.deleteOnExit();
+		GraphSnapshot.write(sample(), f.toPath());
+		byte[] bytes = Files.readAllBytes(f.toPath());
+		Files.write(f.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+		GraphSnapshot.load(f.toPath());
+	}
+
+}
@@ -0,0 +1,78 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InMemoryRolloutSink implements RolloutSink {
+	
+	/** A RolloutSink that keeps each user's latest version in a map, standing in for the real config
+	 * store in tests and local runs. It can be made to sleep on every batch, like a slow remote write,
+	 * and it records the most batches it was ever writing at once, to check an executor's in-flight
+	 * limit.
+	 */
+	
+	//latest version written for each userID
+	private final ConcurrentHashMap<String, Integer> versions;
+	
+	//how long each write takes
+	private final long delayMillis;
+	
+	//number of batches written, being written right now, and the most ever written at once
+	private final AtomicInteger batches;
+	private final AtomicInteger writing;
+	private final AtomicInteger maxWriting;
+	
+	//sink constructor, for writes that take no time
+	public InMemoryRolloutSink() {
+		this(0);
+	}
+	
+	//sink constructor, for writes that each take delayMillis
+	public InMemoryRolloutSink(long delayMillis) {
+		if (delayMillis < 0) {
+			throw new IllegalArgumentException();
+		}
+		this.delayMillis = delayMillis;
+		versions = new ConcurrentHashMap<String, Integer>();
+		batches = new AtomicInteger();
+		writing = new AtomicInteger();
+		maxWriting = new AtomicInteger();
+	}
+	
+	public void write(String[] userIDs, int[] versions) throws InterruptedException {
+		int now = writing.incrementAndGet();
+		maxWriting.accumulateAndGet(now, Math::max);
+		try {
+			if (delayMillis > 0) {
+				Thread.sleep(delayMillis);
+			}
+			for (int i = 0; i < userIDs.length; i++) {
+				this.versions.put(userIDs[i], versions[i]);
+			}
+			batches.incrementAndGet();
+		} finally {
+			writing.decrementAndGet();
+		}
+	}
+	
+	//returns the latest version written for userID, or -1 if none was
+	public int versionOf(String userID) {
+		Integer v = versions.get(userID);
+		return v == null ? -1 : v;
+	}
+	
+	//returns the latest version written for each userID
+	public Map<String, Integer> versions() {
+		return versions;
+	}
+	
+	//returns the number of batches written
+	public int batches() {
+		return batches.get();
+	}
+	
+	//returns the most batches that were ever being written at once
+	public int maxConcurrentWrites() {
+		return maxWriting.get();
+	}
+	
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class InfectionHistograms implements InfectionListener {
+	
+	/** An InfectionListener that keeps a histogram of every phase's timings and every counter's 
+	 * amounts, and can export them in the Prometheus text format. Values are bucketed by their 
+	 * number of bits, so bucket b holds values from 2^(b-1) to 2^b - 1 (and bucket 0 holds 0), which 
+	 * covers any long in 64 buckets at under a factor of two of resolution. Recording a value is a 
+	 * couple of atomic adds, so one instance can be shared by graphs on different threads.
+	 */
+	
+	private static final int BUCKETS = 64;
+	
+	/* row r of each array belongs to phase r, or to counter r - # of phases. buckets holds BUCKETS 
+	entries per row, and sums and counts one each */
+	private static final int PHASES = Phase.values().length;
+	private static final int ROWS = PHASES + Counter.values().length;
+	private final AtomicLongArray buckets = new AtomicLongArray(ROWS * BUCKETS);
+	private final AtomicLongArray sums = new AtomicLongArray(ROWS);
+	private final AtomicLongArray counts = new AtomicLongArray(ROWS);
+	
+	@Override
+	public void phase(Phase phase, long nanos) {
+		record(phase.ordinal(), nanos);
+	}
+	
+	@Override
+	public void count(Counter counter, long amount) {
+		record(PHASES + counter.ordinal(), amount);
+	}
+	
+	//helper function that adds value to the histogram in row r
+	private void record(int r, long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException();
+		}
+		int b = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+		buckets.incrementAndGet(r * BUCKETS + b);
+		sums.addAndGet(r, value);
+		counts.incrementAndGet(r);
+	}
+	
+	//returns the number of times phase was timed
+	public long count(Phase phase) {
+		return counts.get(phase.ordinal());
+	}
+	
+	//returns the total time spent in phase, in nanoseconds
+	public long sum(Phase phase) {
+		return sums.get(phase.ordinal());
+	}
+	
+	//returns the number of times counter was reported
+	public long count(Counter counter) {
+		return counts.get(PHASES + counter.ordinal());
+	}
+	
+	//returns the total of every amount reported for counter
+	public long sum(Counter counter) {
+		return sums.get(PHASES + counter.ordinal());
+	}
+	
+	//returns the number of values in each bucket of phase's histogram
+	public long[] buckets(Phase phase) {
+		return row(phase.ordinal());
+	}
+	
+	//returns the number of values in each bucket of counter's histogram
+	public long[] buckets(Counter counter) {
+		return row(PHASES + counter.ordinal());
+	}
+	
+	private long[] row(int r) {
+		long[] row = new long[BUCKETS];
+		for (int b = 0; b < BUCKETS; b++) {
+			row[b] = buckets.get(r * BUCKETS + b);
+		}
+		return row;
+	}
+	
+	/** Writes every histogram that has at least one value to out in the Prometheus text format, as 
+	 *  infection_phase_nanos{phase="..."} and infection_work{counter="..."}. Bucket upper bounds are 
+	 *  cumulative, as the format requires, and stop at the highest bucket in use.
+	 *  @param out Where the histograms are written
+	 */
+	public void export(Appendable out) throws IOException {
+		out.append("# TYPE infection_phase_nanos histogram\n");
+		for (Phase phase : Phase.values()) {
+			export(out, "infection_phase_nanos", "phase", phase.name(), phase.ordinal());
+		}
+		out.append("# TYPE infection_work histogram\n");
+		for (Counter counter : Counter.values()) {
+			export(out, "infection_work", "counter", counter.name(), PHASES + counter.ordinal());
+		}
+	}
+	
+	//helper function that writes the histogram in row r
+	private void export(Appendable out, String metric, String label, String name, int r)
+			throws IOException {
+		long count = counts.get(r);
+		if (count == 0) {
+			return;
+		}
+		String labels = label + "=\"" + name.toLowerCase(Locale.ROOT) + "\"";
+		long[] row = row(r);
+		int last = BUCKETS - 1;
+		while (row[last] == 0) {
+			last--;
+		}
+		long cumulative = 0;
+		for (int b = 0; b <= last; b++) {
+			cumulative += row[b];
+			long le = b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+			out.append(metric).append("_bucket{").append(labels).append(",le=\"").append(Long.toString(le))
+					.append("\"} ").append(Long.toString(cumulative)).append('\n');
+		}
+		out.append(metric).append("_bucket{").append(labels).append(",le=\"+Inf\"} ")
+				.append(Long.toString(count)).append('\n');
+		out.append(metric).append("_sum{").append(labels).append("} ")
+				.append(Long.toString(sums.get(r))).append('\n');
+		out.append(metric).append("_count{").append(labels).append("} ")
+				.append(Long.toString(count)).append('\n');
+	}
+	
+}
@@ -0,0 +1,56 @@
+public interface InfectionListener {
+	
+	/** Receives per-phase timings and work counters from a UserGraph, to tell where a slow infection 
+	 * is spending its time. A graph with no listener skips the clock reads and doesn't tally the 
+	 * counters, so leaving a graph unobserved costs next to nothing. <p>
+	 * 
+	 * An operation reports each phase as it finishes, and each of its counters once, with the total 
+	 * for the whole operation, as soon as the work it counts is done. Every infection that chooses 
+	 * CCs, whether limited, perfect, approximate, exact, async or assignCohorts, reports 
+	 * FIND_COMPONENTS, SUBSET_SUM and INFECT. total_infection reports INFECT. A plan reports 
+	 * FIND_COMPONENTS and SUBSET_SUM when it's made and INFECT each time it infects. The async 
+	 * infections walk the chosen CCs while planning, so their INFECT phase only times setting the 
+	 * versions. Calls come from the thread running the operation, so a listener shared between 
+	 * graphs has to be thread-safe.
+	 */
+	
+	//the phases of an operation on a graph
+	enum Phase {
+		//reading the size and a user of each CC out of the union-find
+		FIND_COMPONENTS,
+		
+		//choosing the CCs to infect
+		SUBSET_SUM,
+		
+		//walking the chosen CCs and setting their site versions
+		INFECT,
+		
+		//adding a batch of edges with addEdges
+		ADD_EDGES
+	}
+	
+	//the amounts of work an operation counts
+	enum Counter {
+		//users visited by the traversals
+		USERS_VISITED,
+		
+		//neighbor entries looked at by the traversals
+		EDGES_SCANNED,
+		
+		//(item, sum) cells of the subset-sum table that were computed
+		DP_CELLS,
+		
+		//bytes allocated for the subset-sum's tables
+		TABLE_BYTES,
+		
+		//users whose site version actually changed
+		USERS_CHANGED
+	}
+	
+	//called when phase finishes, after taking nanos nanoseconds
+	void phase(Phase phase, long nanos);
+	
+	//called once per operation with the total amount of counter
+	void count(Counter counter, long amount);
+	
+}
@@ -0,0 +1,160 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class InfectionListenerTests {
+
+	//listener that records every call as a string
+	private static class Recorder implements InfectionListener {
+		ArrayList<String> calls = new ArrayList<String>();
+		
+		@Override
+		public void phase(Phase phase, long nanos) {
+			assertTrue(nanos >= 0);
+			calls.add(phase.name());
+		}
+		
+		@Override
+		public void count(Counter counter, long amount) {
+			calls.add(counter.name() + "=" + amount);
+		}
+	}
+	
+	//builds a graph with CCs {a, b, c} (a path) and {d, e}, where only b is already on version 2
+	private static UserGraph sample(User[] u) {
+		UserGraph g = new UserGraph();
+		String[] names = {"a", "b", "c", "d", "e"};
+		for (int i = 0; i < names.length; i++) {
+			u[i] = new User(names[i], i == 1 ? 2 : 1);
+			g.addUser(u[i]);
+		}
+		g.addEdge(u[0], u[1]);
+		g.addEdge(u[1], u[2]);
+		g.addEdge(u[3], u[4]);
+		return g;
+	}
+	
+	//returns the calls r recorded, without the amounts of the subset-sum's counters
+	private static String names(Recorder r) {
+		ArrayList<String> names = new ArrayList<String>();
+		for (String call : r.calls) {
+			names.add(call.startsWith("DP_CELLS=") || call.startsWith("TABLE_BYTES=") 
+					? call.substring(0, call.indexOf('=')) : call);
+		}
+		return names.toString();
+	}
+	
+	//testing the phases and counters reported by limited_infection
+	@Test
+	public void listenerLimitedTest() {
+		User[] u = new User[5];
+		UserGraph g = sample(u);
+		Recorder r = new Recorder();
+		g.setListener(r);
+		g.limitedInfection(3, 2);
+		
+		assertEquals(r.calls.get(0), "FIND_COMPONENTS");
+		assertTrue(r.calls.get(1).startsWith("DP_CELLS="));
+		assertTrue(r.calls.get(2).startsWith("TABLE_BYTES="));
+		assertEquals(r.calls.get(3), "SUBSET_SUM");
+		assertEquals(r.calls.get(4), "INFECT");
+		
+		//{a, b, c} is infected: 3 users, 4 neighbor entries, and b was already on 2
+		assertEquals(r.calls.get(5), "USERS_VISITED=3");
+		assertEquals(r.calls.get(6), "EDGES_SCANNED=4");
+		assertEquals(r.calls.get(7), "USERS_CHANGED=2");
+		assertEquals(r.calls.size(), 8);
+	}
+	
+	//testing that total_infection reports a single phase, and nothing is reported once unset
+	@Test
+	public void listenerTotalTest() {
+		User[] u = new User[5];
+		UserGraph g = sample(u);
+		Recorder r = new Recorder();
+		g.setListener(r);
+		g.totalInfection(u[3], 2);
+		assertEquals(r.calls.toString(), "[INFECT, USERS_VISITED=2, EDGES_SCANNED=2, USERS_CHANGED=2]");
+		
+		g.setListener(null);
+		g.totalInfection(u[0], 3);
+		g.addEdges(new int[] {0}, new int[] {3});
+		assertEquals(r.calls.size(), 4);
+		assertEquals(u[4].getSiteAccessed(), 2);
+	}
+	
+	//testing that the other infections report the same phases and counters as limited_infection
+	@Test
+	public void listenerEveryInfectionTest() {
+		String dp = "FIND_COMPONENTS, DP_CELLS, TABLE_BYTES, SUBSET_SUM, INFECT";
+		
+		//{a, b, c} is infected, and {d, e} is carved down to one user
+		User[] u = new User[5];
+		UserGraph g = sample(u);
+		Recorder r = new Recorder();
+		g.setListener(r);
+		assertEquals(g.exactInfection(4, 3), 1);
+		assertEquals(names(r), "[" + dp + ", USERS_VISITED=5, EDGES_SCANNED=6, USERS_CHANGED=4]");
+		
+		g = sample(u);
+		r = new Recorder();
+		g.setListener(r);
+		g.approximateLimitedInfection(3, 2, 10000);
+		assertEquals(names(r), "[" + dp + ", USERS_VISITED=3, EDGES_SCANNED=4, USERS_CHANGED=2]");
+		
+		g = sample(u);
+		r = new Recorder();
+		g.setListener(r);
+		g.assignCohorts(new int[] {2, 3}, new int[] {5, 6});
+		assertEquals(names(r), "[" + dp + ", USERS_VISITED=5, EDGES_SCANNED=6, USERS_CHANGED=5]");
+		
+		g = sample(u);
+		r = new Recorder();
+		g.setListener(r);
+		g.limitedInfectionAsync(3, 2, Runnable::run);
+		assertEquals(names(r), "[" + dp + ", USERS_VISITED=3, EDGES_SCANNED=4, USERS_CHANGED=2]");
+		
+		//a plan reports its subset-sum when it's made, and one INFECT each time it's used
+		g = sample(u);
+		r = new Recorder();
+		g.setListener(r);
+		InfectionPlan plan = g.planLimitedInfection(5);
+		assertEquals(names(r), "[FIND_COMPONENTS, DP_CELLS, TABLE_BYTES, SUBSET_SUM]");
+		r.calls.clear();
+		plan.infect(5, 7);
+		assertEquals(names(r), "[INFECT, USERS_VISITED=5, EDGES_SCANNED=6, USERS_CHANGED=5]");
+	}
+	
+	//testing that the histograms add up what they're given and export it
+	@Test
+	public void listenerHistogramsTest() throws IOException {
+		User[] u = new User[5];
+		UserGraph g = sample(u);
+		InfectionHistograms h = new InfectionHistograms();
+		g.setListener(h);
+		g.limitedInfection(3, 2);
+		g.totalInfection(u[3], 2);
+		g.addEdges(new int[] {0}, new int[] {3});
+		
+		assertEquals(h.count(InfectionListener.Phase.INFECT), 2);
+		assertEquals(h.count(InfectionListener.Phase.ADD_EDGES), 1);
+		assertEquals(h.sum(InfectionListener.Counter.USERS_VISITED), 5);
+		assertEquals(h.sum(InfectionListener.Counter.USERS_CHANGED), 4);
+		
+		//3 lands in the bucket of 2-bit values
+		long[] visited = h.buckets(InfectionListener.Counter.USERS_VISITED);
+		assertEquals(visited[2], 2);
+		
+		StringBuilder out = new StringBuilder();
+		h.export(out);
+		String text = out.toString();
+		assertTrue(text.contains("infection_work_bucket{counter=\"users_visited\",le=\"3\"} 2\n"));
+		assertTrue(text.contains("infection_work_count{counter=\"users_visited\"} 2\n"));
+		assertTrue(text.contains("infection_phase_nanos_count{phase=\"add_edges\"} 1\n"));
+		assertFalse(text.contains("phase=\"find_components\",le=\"+Inf\"} 0"));
+	}
+
+}
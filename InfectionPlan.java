@@ -0,0 +1,139 @@
+public class InfectionPlan {
+	
+	/** A precomputed answer to limited_infection for every n up to some maximum N, for sizing 
+	 * experiment cohorts. The grouped bitset subset-sum is run once over the graph's CCs all the way
+	 * up to N, or the number of users if that's smaller, keeping for every sum the bundle of CCs 
+	 * that first reached it, and best[m] holds the largest reachable sum <= m. After that, the best
+	 * size for any n is a single lookup, and the CCs that make it up are found by walking back from
+	 * it in O(# of CCs chosen). <p>
+	 * 
+	 * The plan is tied to the CCs of the graph it was made from. Adding or removing a user, joining 
+	 * two CCs or splitting one makes it stale, after which every method but isValid throws an 
+	 * IllegalStateException. Adding or removing edges that don't change the CCs, or changing site 
+	 * versions, doesn't.
+	 */
+	
+	private final UserGraph graph;
+	
+	//the graph's modCount when the plan was made
+	private final long modCount;
+	
+	//a user in each CC, and the CCs grouped into bundles of equal sizes
+	private final User[] ccUser;
+	private final SubsetSum.Bundles bundles;
+	
+	//first[m] - 1 is the bundle that first made sum m reachable, 0 if m is 0 or unreachable
+	private final int[] first;
+	
+	//best[m] is the largest reachable sum <= m, up to cap
+	private final int[] best;
+	
+	/* the plan answers for n up to maxN, but no sum is above the number of users, so the tables only 
+	go up to cap = min(maxN, users) and larger n are answered from the entry at cap */
+	private final int maxN;
+	private final int cap;
+	
+	/* plans infections of up to maxN users, given a user and the size of each of the graph's CCs, 
+	reporting the subset-sum's counters to listener unless it's null */
+	InfectionPlan(UserGraph graph, User[] ccUser, int[] ccSize, int maxN, InfectionListener listener) {
+		this.graph = graph;
+		this.modCount = graph.modCount();
+		this.ccUser = ccUser;
+		this.maxN = maxN;
+		cap = Math.min(maxN, graph.size());
+		
+		bundles = new SubsetSum.Bundles(ccSize, ccSize.length, cap);
+		first = SubsetSum.reachTable(bundles.size, bundles.numBundles, cap, false, listener);
+		best = new int[cap + 1];
+		for (int m = 1; m <= cap; m++) {
+			best[m] = first[m] != 0 ? m : best[m - 1];
+		}
+	}
+	
+	//returns whether the graph's CCs are still the ones the plan was made for
+	public boolean isValid() {
+		return graph.modCount() == modCount;
+	}
+	
+	//returns the largest n the plan can answer for
+	public int maxN() {
+		check(0);
+		return maxN;
+	}
+	
+	//returns the number of users limitedInfection(n, sv) would infect
+	public int bestSize(int n) {
+		check(n);
+		return best[Math.min(n, cap)];
+	}
+	
+	//returns whether perfectLimitedInfection(n, sv) would succeed
+	public boolean isExact(int n) {
+		check(n);
+		return best[Math.min(n, cap)] == n;
+	}
+	
+	/** Returns one user from each of the CCs that limitedInfection(n, sv) would infect.
+	 *  @param n The maximum number of users to infect
+	 *  @return a user in each chosen CC
+	 */
+	public User[] components(int n) {
+		check(n);
+		
+		//count the CCs first, so the result can be allocated at its exact size
+		int numChosen = 0;
+		for (int m = best[Math.min(n, cap)]; m > 0; m -= bundles.size[first[m] - 1]) {
+			numChosen += bundles.count[first[m] - 1];
+		}
+		User[] chosen = new User[numChosen];
+		
+		/* bundles come out in decreasing order, so each group's bundles come out together. take as 
+		many CCs from the front of the group as each bundle holds */
+		int c = 0;
+		int taken = 0;
+		int lastGroup = -1;
+		for (int m = best[Math.min(n, cap)]; m > 0; m -= bundles.size[first[m] - 1]) {
+			int b = first[m] - 1;
+			if (bundles.group[b] != lastGroup) {
+				lastGroup = bundles.group[b];
+				taken = 0;
+			}
+			for (int t = 0; t < bundles.count[b]; t++) {
+				chosen[c++] = ccUser[bundles.item(lastGroup + taken++)];
+			}
+		}
+		return chosen;
+	}
+	
+	/** limited_infection:
+	 *  Same as graph.limitedInfection(n, sv), using the plan.
+	 *  @param n  The maximum number of users that will be infected
+	 *  @param sv The site version that the users will be infected with
+	 */
+	public void infect(int n, int sv) {
+		graph.infectComponents(components(n), sv);
+	}
+	
+	/** perfect_limited_infection:
+	 *  Same as graph.perfectLimitedInfection(n, sv), using the plan.
+	 *  @param n  The number of users that will be infected
+	 *  @param sv The site version that the users will be infected with
+	 */
+	public void infectExactly(int n, int sv) {
+		if (!isExact(n)) {
+			throw new UnsupportedOperationException();
+		}
+		infect(n, sv);
+	}
+	
+	//throws if the plan is stale or n is out of its range
+	private void check(int n) {
+		if (!isValid()) {
+			throw new IllegalStateException();
+		}
+		if (n < 0 || n > maxN) {
+			throw new IllegalArgumentException();
+		}
+	}
+	
+}
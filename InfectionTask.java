@@ -0,0 +1,148 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InfectionTask {
+	
+	/** An infection running in the background, returned by the async variants of UserGraph's
+	 * infections. It completes with the number of users infected, or exceptionally with whatever
+	 * the blocking variant would have thrown. While it runs, usersVisited and dpRowsDone tell how
+	 * far along it is. <p>
+	 *
+	 * An infection plans first, choosing CCs with the subset-sum and walking them to list their
+	 * users, and only then applies the new version to every user on the list in one go. cancel
+	 * only succeeds during planning, which checks for it after every subset-sum row and every
+	 * 1024 users walked. Once applying has started, cancel returns false and the infection
+	 * finishes, so the graph is never left with part of an infection applied. <p>
+	 *
+	 * The task's own future is private, so only the infection and cancel can complete it. future()
+	 * hands out a new future each time that follows it, and completing that one, say with orTimeout,
+	 * only changes what its caller sees, never the infection.
+	 */
+	
+	//how often planning reports users visited and checks for cancellation
+	static final int CHECK_INTERVAL = 1024;
+	
+	private static final int PLANNING = 0;
+	private static final int APPLYING = 1;
+	private static final int CANCELLED = 2;
+	private static final int FAILED = 3;
+	
+	private final AtomicInteger state;
+	
+	//completed only by the infection, or by cancel while planning
+	private final CompletableFuture<Integer> result;
+	
+	private final AtomicLong usersVisited;
+	private final AtomicLong dpRowsDone;
+	private volatile long dpRows;
+	
+	//task constructor
+	InfectionTask() {
+		state = new AtomicInteger(PLANNING);
+		result = new CompletableFuture<Integer>();
+		usersVisited = new AtomicLong();
+		dpRowsDone = new AtomicLong();
+	}
+	
+	/** Returns a new future that completes the way the task does: with the number of users infected,
+	 *  exceptionally with the same exception, or cancelled. Completing or cancelling it has no effect
+	 *  on the task, so it can be given timeouts and callbacks freely.
+	 *  @return a future following the task
+	 */
+	public CompletableFuture<Integer> future() {
+		CompletableFuture<Integer> f = new CompletableFuture<Integer>();
+		result.whenComplete((n, t) -> {
+			if (t == null) {
+				f.complete(n);
+			} else if (t instanceof CancellationException) {
+				f.cancel(false);
+			} else {
+				f.completeExceptionally(t);
+			}
+		});
+		return f;
+	}
+	
+	//returns whether the task has finished, failed or been cancelled
+	public boolean isDone() {
+		return result.isDone();
+	}
+	
+	//returns whether the task was cancelled
+	public boolean isCancelled() {
+		return result.isCancelled();
+	}
+	
+	//returns the number of users walked so far while planning
+	public long usersVisited() {
+		return usersVisited.get();
+	}
+	
+	//returns the number of subset-sum rows computed so far
+	public long dpRowsDone() {
+		return dpRowsDone.get();
+	}
+	
+	//returns the most subset-sum rows there can be, or 0 until the subset-sum has started
+	public long dpRows() {
+		return dpRows;
+	}
+	
+	//returns whether planning is done and the versions are being or have been applied
+	public boolean isApplying() {
+		return state.get() == APPLYING;
+	}
+	
+	/** Cancels the infection if it's still planning, leaving the graph untouched.
+	 *  @return whether the infection was cancelled
+	 */
+	public boolean cancel() {
+		if (!state.compareAndSet(PLANNING, CANCELLED)) {
+			return false;
+		}
+		return result.cancel(false);
+	}
+	
+	//records users walked, then throws a CancellationException if the infection was cancelled
+	void visited(int count) {
+		usersVisited.addAndGet(count);
+		checkCancelled();
+	}
+	
+	//records that the subset-sum will have at most rows rows
+	void dpStarted(int rows) {
+		dpRows = rows;
+	}
+	
+	//records a subset-sum row, then throws a CancellationException if the infection was cancelled
+	void dpRowDone() {
+		dpRowsDone.incrementAndGet();
+		checkCancelled();
+	}
+	
+	//throws a CancellationException if the infection was cancelled
+	void checkCancelled() {
+		if (state.get() == CANCELLED) {
+			throw new CancellationException();
+		}
+	}
+	
+	//ends planning, returning false if the infection was cancelled first
+	boolean startApplying() {
+		return state.compareAndSet(PLANNING, APPLYING);
+	}
+	
+	//completes the task with the number of users infected, once they've all been infected
+	void finish(int infected) {
+		result.complete(infected);
+	}
+	
+	//completes the task exceptionally with t, so that it can no longer be cancelled
+	void fail(Throwable t) {
+		state.compareAndSet(PLANNING, FAILED);
+		result.completeExceptionally(t);
+	}
+	
+}
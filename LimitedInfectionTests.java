@@ -4,6 +4,22 @@ import org.junit.Test;
 
 public class LimitedInfectionTests {
 
+	//builds a graph with a star-shaped CC of each of the given sizes, with every user on version sv
+	private static UserGraph graphWithCCs(int sv, int... sizes) {
+		UserGraph g = new UserGraph();
+		int id = 0;
+		for (int s : sizes) {
+			User first = new User("u" + id++, sv);
+			g.addUser(first);
+			for (int x = 1; x < s; x++) {
+				User u = new User("u" + id++, sv);
+				g.addUser(u);
+				g.addEdge(first, u);
+			}
+		}
+		return g;
+	}
+	
 	//testing on null user
 	@Test
 	public void liNullTest() {
@@ -199,5 +215,267 @@ public class LimitedInfectionTests {
 		
 		assertTrue(condition1 || condition2);
 	}
+	
+	//test that component sizes are kept up to date as edges are added between infections
+	@Test
+	public void liEdgesBetweenCallsTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 2);
+		User c = new User("c", 3);
+		User d = new User("d", 4);
+		
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addUser(d);
+		g.addEdge(a, b);
+		g.addEdge(a, b);
+		assertEquals(g.numComponents(), 3);
+		assertEquals(g.componentSize(b), 2);
+		
+		g.addEdge(b, c);
+		g.addEdge(c, a);
+		assertEquals(g.numComponents(), 2);
+		assertEquals(g.componentSize(a), 3);
+		assertEquals(g.componentSize(d), 1);
+		
+		g.limitedInfection(3, 10);
+		assertEquals(a.getSiteAccessed(), 10);
+		assertEquals(b.getSiteAccessed(), 10);
+		assertEquals(c.getSiteAccessed(), 10);
+		assertEquals(d.getSiteAccessed(), 4);
+	}
+	
+	//test that a batch of edges, with repeats, gives the same CCs as adding them one at a time
+	@Test
+	public void liBatchedEdgesTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 2);
+		User c = new User("c", 3);
+		User d = new User("d", 4);
+		User e = new User("e", 5);
+		
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addUser(d);
+		g.addUser(e);
+		g.addEdges(new int[] {0, 1, 1, 3, 3}, new int[] {1, 0, 2, 3, 4});
+		
+		assertEquals(g.numComponents(), 2);
+		assertEquals(g.componentSize(c), 3);
+		assertEquals(a.getNeighbors().size(), 1);
+		assertEquals(b.getNeighbors().size(), 2);
+		assertEquals(d.getNeighbors().size(), 2);
+		
+		g.limitedInfection(2, 10);
+		assertEquals(a.getSiteAccessed(), 1);
+		assertEquals(b.getSiteAccessed(), 2);
+		assertEquals(c.getSiteAccessed(), 3);
+		assertEquals(d.getSiteAccessed(), 10);
+		assertEquals(e.getSiteAccessed(), 10);
+	}
+	
+	//test that a batch with an invalid index adds nothing
+	@Test
+	public void liBatchedEdgesInvalidTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 2);
+		g.addUser(a);
+		g.addUser(b);
+		
+		try {
+			g.addEdges(new int[] {0, 1}, new int[] {1, 2});
+			fail();
+		} catch (IllegalArgumentException ex) {
+			assertEquals(g.numComponents(), 2);
+			assertEquals(a.getNeighbors().size(), 0);
+		}
+	}
+	
+	//test that a plan answers every n the same way as limitedInfection does
+	@Test
+	public void liPlanMatchesTest() {
+		//CCs of sizes 1, 1, 1, 3, 3 and 7, all on version 1
+		UserGraph g = graphWithCCs(1, 1, 1, 1, 3, 3, 7);
+		
+		InfectionPlan plan = g.planLimitedInfection(16);
+		assertEquals(plan.maxN(), 16);
+		for (int n = 0; n <= 16; n++) {
+			int size = 0;
+			for (User u : plan.components(n)) {
+				size += g.componentSize(u);
+			}
+			assertEquals(plan.bestSize(n), size);
+			assertEquals(plan.isExact(n), size == n);
+			
+			g.resetVersions(1);
+			g.limitedInfection(n, 2);
+			assertEquals(g.countVersion(2), size);
+			
+			g.resetVersions(1);
+			plan.infect(n, 2);
+			assertEquals(g.countVersion(2), size);
+		}
+		assertEquals(plan.bestSize(16), 16);
+		assertTrue(plan.isValid());
+	}
+	
+	//test that a plan goes stale once two CCs are joined
+	@Test
+	public void liPlanStaleTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 1);
+		User c = new User("c", 1);
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addEdge(a, b);
+		
+		InfectionPlan plan = g.planLimitedInfection(3);
+		g.addEdge(b, a);
+		g.totalInfection(a, 5);
+		assertTrue(plan.isValid());
+		
+		g.addEdge(b, c);
+		assertFalse(plan.isValid());
+		try {
+			plan.bestSize(1);
+			fail();
+		} catch (IllegalStateException ex) {
+		}
+	}
+	
+	//test that a plan only answers for 0 <= n <= maxN, and infectExactly refuses unreachable n
+	@Test
+	public void liPlanRangeTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 1);
+		g.addUser(a);
+		g.addUser(b);
+		g.addEdge(a, b);
+		
+		InfectionPlan plan = g.planLimitedInfection(2);
+		try {
+			plan.bestSize(3);
+			fail();
+		} catch (IllegalArgumentException ex) {
+		}
+		try {
+			plan.infectExactly(1, 2);
+			fail();
+		} catch (UnsupportedOperationException ex) {
+			assertEquals(a.getSiteAccessed(), 1);
+		}
+		plan.infectExactly(2, 2);
+		assertEquals(b.getSiteAccessed(), 2);
+	}
+	
+	//test that a plan's maxN can be far above the number of users without allocating up to it
+	@Test
+	public void liPlanLargeMaxNTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 1);
+		User c = new User("c", 1);
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addEdge(a, b);
+		
+		InfectionPlan plan = g.planLimitedInfection(Integer.MAX_VALUE);
+		assertEquals(plan.maxN(), Integer.MAX_VALUE);
+		assertEquals(plan.bestSize(2), 2);
+		assertEquals(plan.bestSize(Integer.MAX_VALUE), 3);
+		assertTrue(plan.isExact(3));
+		assertFalse(plan.isExact(4));
+		assertEquals(plan.components(1000).length, 2);
+		
+		plan.infect(Integer.MAX_VALUE, 2);
+		assertEquals(g.countVersion(2), 3);
+	}
+	
+	//test that experiments are given disjoint CCs and never go over their targets
+	@Test
+	public void liCohortsTest() {
+		//CCs of sizes 1, 2, 2, 3, 4 and 5, all on version 0
+		UserGraph g = graphWithCCs(0, 1, 2, 2, 3, 4, 5);
+		
+		CohortAssignment a = g.assignCohorts(new int[] {4, 9, 3}, new int[] {1, 2, 3});
+		assertEquals(a.numCohorts(), 3);
+		for (int i = 0; i < 3; i++) {
+			assertTrue(a.achieved(i) <= a.upperBound(i));
+			assertTrue(a.upperBound(i) <= a.target(i));
+			assertEquals(g.countVersion(a.version(i)), a.achieved(i));
+			
+			int size = 0;
+			for (User u : a.components(i)) {
+				size += g.componentSize(u);
+				assertEquals(u.getSiteAccessed(), a.version(i));
+			}
+			assertEquals(size, a.achieved(i));
+		}
+		
+		//9, 4 and 3 can be filled exactly from 5+4, 2+2 and 3
+		assertEquals(a.totalUpperBound(), 16);
+		assertEquals(a.totalAchieved(), 16);
+		assertEquals(g.countVersion(0), 1);
+	}
+	
+	//test that mismatched targets and versions are rejected before anything is infected
+	@Test
+	public void liCohortsInvalidTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		g.addUser(a);
+		try {
+			g.assignCohorts(new int[] {1, 1}, new int[] {2});
+			fail();
+		} catch (IllegalArgumentException ex) {
+		}
+		try {
+			g.assignCohorts(new int[] {1, -1}, new int[] {2, 3});
+			fail();
+		} catch (IllegalArgumentException ex) {
+		}
+		assertEquals(a.getSiteAccessed(), 1);
+		
+		CohortAssignment none = g.assignCohorts(new int[0], new int[0]);
+		assertEquals(none.totalAchieved(), 0);
+	}
+	
+	//test that the approximate mode matches limitedInfection when it has time to finish
+	@Test
+	public void liApproximateTest() {
+		//CCs of sizes 2, 3, 3 and 6, all on version 1
+		UserGraph g = graphWithCCs(1, 2, 3, 3, 6);
+		
+		ApproximateInfection a = g.approximateLimitedInfection(13, 2, 10000);
+		assertEquals(a.target(), 13);
+		assertEquals(a.infected(), 12);
+		assertTrue(a.isOptimal());
+		assertEquals(a.errorBound(), 0);
+		assertEquals(a.shortfall(), 1);
+		assertEquals(g.countVersion(2), 12);
+		
+		//with no budget, the CCs are taken greedily: 6 and 3 and 3 fit in 13, 2 doesn't
+		g.resetVersions(1);
+		a = g.approximateLimitedInfection(13, 2, 0);
+		assertEquals(a.infected(), 12);
+		assertEquals(g.countVersion(2), 12);
+		assertTrue(a.upperBound() >= 12);
+	}
+	
+	//test that the approximate mode rejects a negative budget
+	@Test(expected = IllegalArgumentException.class)
+	public void liApproximateNegativeBudgetTest() {
+		UserGraph g = new UserGraph();
+		g.approximateLimitedInfection(1, 2, -1);
+	}
 
 }
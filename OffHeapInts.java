@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+public class OffHeapInts {
+	
+	/** A long-indexed array of ints stored outside the Java heap, either in direct buffers or in 
+	 * pages of a memory-mapped file. A single buffer can't hold more than 2^31 bytes, so the ints are 
+	 * split into chunks of 2^28 (1GB each), and element i lives at position i & (2^28 - 1) of chunk 
+	 * i >>> 28. The garbage collector only sees the handful of buffer objects, no matter how many ints
+	 * they hold.
+	 */
+	
+	//each chunk holds 2^CHUNK_BITS ints
+	private static final int CHUNK_BITS = 28;
+	private static final int CHUNK = 1 << CHUNK_BITS;
+	private static final long MASK = CHUNK - 1;
+	
+	private final IntBuffer[] chunks;
+	private final long length;
+	
+	private OffHeapInts(IntBuffer[] chunks, long length) {
+		this.chunks = chunks;
+		this.length = length;
+	}
+	
+	//allocates length zeroed ints in direct buffers
+	public static OffHeapInts allocate(long length) {
+		if (length < 0) {
+			throw new IllegalArgumentException();
+		}
+		IntBuffer[] chunks = new IntBuffer[(int) ((length + CHUNK - 1) >>> CHUNK_BITS)];
+		for (int c = 0; c < chunks.length; c++) {
+			int len = (int) Math.min(CHUNK, length - ((long) c << CHUNK_BITS));
+			chunks[c] = ByteBuffer.allocateDirect(len * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+		return new OffHeapInts(chunks, length);
+	}
+	
+	//allocates a copy of a in direct buffers
+	public static OffHeapInts copyOf(int[] a) {
+		OffHeapInts ints = allocate(a.length);
+		for (int c = 0; c < ints.chunks.length; c++) {
+			ints.chunks[c].put(0, a, c << CHUNK_BITS, ints.chunks[c].limit());
+		}
+		return ints;
+	}
+	
+	//allocates a copy of src in direct buffers
+	public static OffHeapInts copyOf(OffHeapInts src) {
+		OffHeapInts ints = allocate(src.length);
+		for (int c = 0; c < ints.chunks.length; c++) {
+			ints.chunks[c].duplicate().put(src.chunks[c].duplicate());
+		}
+		return ints;
+	}
+	
+	/* maps length little-endian ints of ch starting at byte pos. READ_ONLY pages are shared with 
+	every other process that maps the file */
+	static OffHeapInts map(FileChannel ch, FileChannel.MapMode mode, long pos, long length)
+			throws IOException {
+		IntBuffer[] chunks = new IntBuffer[(int) ((length + CHUNK - 1) >>> CHUNK_BITS)];
+		for (int c = 0; c < chunks.length; c++) {
+			long from = (long) c << CHUNK_BITS;
+			long len = Math.min(CHUNK, length - from);
+			chunks[c] = ch.map(mode, pos + from * 4, len * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		}
+		return new OffHeapInts(chunks, length);
+	}
+	
+	//returns the number of ints
+	public long length() {
+		return length;
+	}
+	
+	//returns int i
+	public int get(long i) {
+		return chunks[(int) (i >>> CHUNK_BITS)].get((int) (i & MASK));
+	}
+	
+	//sets int i to v
+	public void set(long i, int v) {
+		chunks[(int) (i >>> CHUNK_BITS)].put((int) (i & MASK), v);
+	}
+	
+	//sets every int to v
+	public void fill(int v) {
+		for (IntBuffer chunk : chunks) {
+			for (int x = 0; x < chunk.limit(); x++) {
+				chunk.put(x, v);
+			}
+		}
+	}
+	
+	//returns the number of ints equal to v
+	public long count(int v) {
+		long count = 0;
+		for (IntBuffer chunk : chunks) {
+			for (int x = 0; x < chunk.limit(); x++) {
+				if (chunk.get(x) == v) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+	
+	//copies ints from...from+len-1 into a[0...len-1]
+	public void get(long from, int[] a, int len) {
+		for (int p = 0; p < len;) {
+			long i = from + p;
+			IntBuffer chunk = chunks[(int) (i >>> CHUNK_BITS)];
+			int count = (int) Math.min(len - p, chunk.limit() - (i & MASK));
+			chunk.get((int) (i & MASK), a, p, count);
+			p += count;
+		}
+	}
+	
+}
@@ -0,0 +1,273 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class OffHeapUserGraph {
+	
+	/** A CompactUserGraph whose storage lives outside the Java heap, for graphs too large to keep on
+	 * it. The CSR adjacency, the site versions, the CCs (a user and size of each, plus the CC of every
+	 * user), the IDs with a hash table over them, and even the traversal scratch space are all kept in
+	 * OffHeapInts and ByteBuffers, so the heap holds a few dozen objects no matter how many users 
+	 * there are, and the garbage collector has nothing to scan. Users are only ever named by their 
+	 * dense index or their ID; there are no User objects. <p>
+	 * 
+	 * The storage is either copied from a CompactUserGraph into direct buffers, or mapped straight 
+	 * from a snapshot file by GraphSnapshot.map, in which case restarts are nearly free and the pages
+	 * are shared between processes. Like CompactUserGraph, the edges never change, so the CCs are 
+	 * stored rather than found. Only the subset-sum of limited_infection allocates on the heap, and 
+	 * only primitive arrays of O(# of CCs + n).
+	 */
+	
+	private final int n;
+	
+	//offsets[i]...offsets[i+1]-1 are the positions in targets of user i's neighbors
+	private final OffHeapInts offsets;
+	private final OffHeapInts targets;
+	
+	//site version of every user
+	private final OffHeapInts versions;
+	
+	//a user in each CC, the size of each CC, and the CC of each user
+	private final OffHeapInts ccUser;
+	private final OffHeapInts ccSize;
+	private final OffHeapInts labels;
+	
+	//user i's ID is idBytes[idEnds[i-1]...idEnds[i]-1] in UTF-8, and slots is a hash table over them
+	private final OffHeapInts idEnds;
+	private final OffHeapInts slots;
+	private final ByteBuffer idBytes;
+	
+	/* scratch space for traversals, allocated by the first one. visited[i] == epoch if user i has 
+	been visited by the current traversal. two infections can't run on the same graph at once */
+	private OffHeapInts stack;
+	private OffHeapInts visited;
+	private int epoch;
+	
+	//copies the users, edges, site versions and CCs of g into direct buffers
+	public OffHeapUserGraph(CompactUserGraph g) {
+		if (g == null) {
+			throw new NullPointerException();
+		}
+		n = g.size();
+		int[] heapOffsets = g.offsets();
+		int[][] cc = g.components(null);
+		byte[][] ids = GraphSnapshot.encodeIds(g.ids());
+		
+		offsets = OffHeapInts.copyOf(heapOffsets);
+		targets = OffHeapInts.copyOf(g.targets());
+		versions = OffHeapInts.allocate(n);
+		for (int i = 0; i < n; i++) {
+			versions.set(i, g.getSiteAccessed(i));
+		}
+		ccUser = OffHeapInts.copyOf(cc[0]);
+		ccSize = OffHeapInts.copyOf(cc[1]);
+		labels = OffHeapInts.copyOf(GraphSnapshot.labels(heapOffsets, g.targets(), cc[0]));
+		int[] ends = GraphSnapshot.idEnds(ids);
+		idEnds = OffHeapInts.copyOf(ends);
+		slots = OffHeapInts.copyOf(GraphSnapshot.slotTable(ids));
+		idBytes = ByteBuffer.allocateDirect(n == 0 ? 0 : ends[n - 1]);
+		for (byte[] id : ids) {
+			idBytes.put(id);
+		}
+	}
+	
+	//wraps storage mapped by GraphSnapshot.map
+	OffHeapUserGraph(int n, OffHeapInts offsets, OffHeapInts targets, OffHeapInts versions, 
+			OffHeapInts ccUser, OffHeapInts ccSize, OffHeapInts labels, OffHeapInts idEnds, 
+			OffHeapInts slots, ByteBuffer idBytes) {
+		this.n = n;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.versions = versions;
+		this.ccUser = ccUser;
+		this.ccSize = ccSize;
+		this.labels = labels;
+		this.idEnds = idEnds;
+		this.slots = slots;
+		this.idBytes = idBytes;
+	}
+	
+	//returns number of users in the graph
+	public int size() {
+		return n;
+	}
+	
+	//returns the dense index of the user with the given ID, or -1 if there's no such user
+	public int indexOf(String userID) {
+		if (userID == null) {
+			throw new NullPointerException();
+		}
+		byte[] id = userID.getBytes(StandardCharsets.UTF_8);
+		int mask = (int) slots.length() - 1;
+		int start = GraphSnapshot.hash(id, 0, id.length) & mask;
+		for (int slot = start; slots.get(slot) != 0; slot = (slot + 1) & mask) {
+			int i = slots.get(slot) - 1;
+			if (idEquals(i, id)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	//returns whether user i's ID is id
+	private boolean idEquals(int i, byte[] id) {
+		int start = i == 0 ? 0 : idEnds.get(i - 1);
+		if (idEnds.get(i) - start != id.length) {
+			return false;
+		}
+		for (int p = 0; p < id.length; p++) {
+			if (idBytes.get(start + p) != id[p]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	//returns the ID of the user with dense index i
+	public String getUserID(int i) {
+		checkIndex(i);
+		int start = i == 0 ? 0 : idEnds.get(i - 1);
+		byte[] id = new byte[idEnds.get(i) - start];
+		idBytes.get(start, id);
+		return new String(id, StandardCharsets.UTF_8);
+	}
+	
+	//returns the site version of the user with dense index i
+	public int getSiteAccessed(int i) {
+		checkIndex(i);
+		return versions.get(i);
+	}
+	
+	//moves every user in the graph to site version sv
+	public void resetVersions(int sv) {
+		versions.fill(sv);
+	}
+	
+	//returns number of users on site version sv
+	public int countVersion(int sv) {
+		return (int) versions.count(sv);
+	}
+	
+	//returns number of connected components in the graph
+	public int numComponents() {
+		return (int) ccSize.length();
+	}
+	
+	//returns the size of the connected component of the user with dense index i
+	public int componentSize(int i) {
+		checkIndex(i);
+		return ccSize.get(labels.get(i));
+	}
+	
+	//throws an IndexOutOfBoundsException if i isn't a user's index
+	private void checkIndex(int i) {
+		if (i < 0 || i >= n) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+	
+	/** total_infection: 
+	 *  Same as CompactUserGraph.totalInfection, for the user with dense index i.
+	 *  @param i  The index of the user from which from the infection will start
+	 *  @param sv The site version that the users will be infected with 
+	 */
+	public void totalInfection(int i, int sv) {
+		if (i < 0 || i >= n) {
+			throw new IllegalArgumentException();
+		}
+		traverse(i, nextEpoch(), sv);
+	}
+	
+	//starts a new traversal, returns the stamp that marks users as visited by it
+	private int nextEpoch() {
+		if (visited == null) {
+			visited = OffHeapInts.allocate(n);
+			stack = OffHeapInts.allocate(n);
+		}
+		
+		//once every stamp has been used, forget all of them and start over
+		if (++epoch == 0) {
+			visited.fill(0);
+			epoch = 1;
+		}
+		return epoch;
+	}
+	
+	//helper function that infects every user in i's CC that isn't stamped with stamp
+	private void traverse(int i, int stamp, int sv) {
+		visited.set(i, stamp);
+		stack.set(0, i);
+		int top = 1;
+		
+		while (top > 0) {
+			int w = stack.get(--top);
+			
+			//users already on sv are left alone
+			if (versions.get(w) != sv) {
+				versions.set(w, sv);
+			}
+			
+			//users are marked when pushed, so the stack never holds more than size() entries
+			int end = offsets.get(w + 1);
+			for (int e = offsets.get(w); e < end; e++) {
+				int v = targets.get(e);
+				if (visited.get(v) != stamp) {
+					visited.set(v, stamp);
+					stack.set(top++, v);
+				}
+			}
+		}
+	}
+	
+	/** limited_infection:
+	 *  Same as UserGraph.limitedInfection, but run on the off-heap graph.
+	 *  
+	 *  @param n  The maximum number of users that will be infected
+	 *  @param sv The site version that the users will be infected with
+	 */
+	public void limitedInfection(int n, int sv) {
+		infectSubset(n, sv, false);
+	}
+	
+	/** perfect_limited_infection:
+	 *  Same as UserGraph.perfectLimitedInfection, but run on the off-heap graph.
+	 *  
+	 *  @param n  The number of users that will be infected
+	 *  @param sv The site version that the users will be infected with
+	 */
+	public void perfectLimitedInfection(int n, int sv) {
+		infectSubset(n, sv, true);
+	}
+	
+	//helper function that infects the best subset of CCs with at most n users in total, or exactly 
+	//n users if exact is true
+	private void infectSubset(int n, int sv, boolean exact) {
+		if (n < 0) {
+			throw new IllegalArgumentException();
+		}
+		
+		if (this.n == 0) {
+			return;
+		}
+		
+		//the subset-sum needs the CC sizes on the heap
+		int numCC = numComponents();
+		int[] sizes = new int[numCC];
+		ccSize.get(0, sizes, numCC);
+		
+		boolean[] inSol = new boolean[numCC];
+		int maxSum = SubsetSum.findSubsetGrouped(sizes, numCC, Math.min(n, this.n), inSol);
+		
+		if (exact && maxSum != n) {
+			throw new UnsupportedOperationException();
+		}
+		
+		//the CCs are disjoint, so they can share one stamp
+		int stamp = nextEpoch();
+		for (int x = 0; x < numCC; x++) {
+			if (inSol[x]) {
+				traverse(ccUser.get(x), stamp, sv);
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,104 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class OffHeapUserGraphTests {
+
+	//builds a graph with CCs {a, b, c}, {d, e} and {f}, where only a is on version 2
+	private static CompactUserGraph sample() {
+		UserGraph g = new UserGraph();
+		String[] names = {"a", "b", "c", "d", "e", "\u00e9t\u00e9"};
+		User[] u = new User[names.length];
+		for (int i = 0; i < names.length; i++) {
+			u[i] = new User(names[i], i == 0 ? 2 : 1);
+			g.addUser(u[i]);
+		}
+		g.addEdge(u[0], u[1]);
+		g.addEdge(u[1], u[2]);
+		g.addEdge(u[3], u[4]);
+		return new CompactUserGraph(g);
+	}
+	
+	//testing lookups and component queries on a copied graph
+	@Test
+	public void offHeapCopyTest() {
+		CompactUserGraph c = sample();
+		OffHeapUserGraph g = new OffHeapUserGraph(c);
+		assertEquals(g.size(), 6);
+		assertEquals(g.numComponents(), 3);
+		for (int i = 0; i < c.size(); i++) {
+			assertEquals(g.getUserID(i), c.getUser(i).getUserID());
+			assertEquals(g.indexOf(g.getUserID(i)), i);
+			assertEquals(g.getSiteAccessed(i), c.getSiteAccessed(i));
+		}
+		assertEquals(g.indexOf("z"), -1);
+		assertEquals(g.componentSize(g.indexOf("b")), 3);
+		assertEquals(g.componentSize(g.indexOf("\u00e9t\u00e9")), 1);
+		
+		g.totalInfection(g.indexOf("e"), 9);
+		assertEquals(g.countVersion(9), 2);
+		assertEquals(c.countVersion(9), 0);
+	}
+	
+	//testing the infections against CompactUserGraph on random graphs
+	@Test
+	public void offHeapRandomTest() {
+		Random r = new Random(5);
+		for (int t = 0; t < 30; t++) {
+			UserGraph g = new UserGraph();
+			int n = 1 + r.nextInt(60);
+			User[] u = new User[n];
+			for (int i = 0; i < n; i++) {
+				u[i] = new User("u" + i, 0);
+				g.addUser(u[i]);
+			}
+			for (int e = r.nextInt(n); e > 0; e--) {
+				g.addEdge(u[r.nextInt(n)], u[r.nextInt(n)]);
+			}
+			CompactUserGraph c = new CompactUserGraph(g);
+			OffHeapUserGraph o = new OffHeapUserGraph(c);
+			
+			int target = r.nextInt(n + 1);
+			c.limitedInfection(target, 1);
+			o.limitedInfection(target, 1);
+			int start = r.nextInt(n);
+			c.totalInfection(start, 2);
+			o.totalInfection(start, 2);
+			for (int i = 0; i < n; i++) {
+				assertEquals(o.getSiteAccessed(i), c.getSiteAccessed(i));
+			}
+		}
+	}
+	
+	//testing that a mapped snapshot matches the graph written, and infections don't touch the file
+	@Test
+	public void offHeapMapTest() throws IOException {
+		File f = File.createTempFile("graph", ".snap");
+		f.deleteOnExit();
+		GraphSnapshot.write(sample(), f.toPath());
+		
+		OffHeapUserGraph g = GraphSnapshot.map(f.toPath());
+		assertEquals(g.size(), 6);
+		assertEquals(g.getSiteAccessed(g.indexOf("a")), 2);
+		assertEquals(g.componentSize(g.indexOf("d")), 2);
+		g.perfectLimitedInfection(3, 7);
+		assertEquals(g.countVersion(7), 3);
+		assertEquals(g.getSiteAccessed(g.indexOf("\u00e9t\u00e9")), 7);
+		
+		OffHeapUserGraph again = GraphSnapshot.map(f.toPath());
+		assertEquals(again.countVersion(7), 0);
+		assertEquals(GraphSnapshot.load(f.toPath()).countVersion(1), 5);
+	}
+	
+	//testing that perfect_limited_infection still refuses unreachable n
+	@Test(expected = UnsupportedOperationException.class)
+	public void offHeapPerfectUnsupportedTest() {
+		OffHeapUserGraph g = new OffHeapUserGraph(sample());
+		g.perfectLimitedInfection(7, 3);
+	}
+
+}
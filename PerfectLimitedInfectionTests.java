@@ -1,5 +1,7 @@
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 public class PerfectLimitedInfectionTests {
@@ -241,5 +243,110 @@ public class PerfectLimitedInfectionTests {
 		
 		assertTrue(condition1 || condition2);
 	}
+	
+	//testing exactInfection when whole CCs add up to n
+	@Test
+	public void pliExactWholeCCTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 2);
+		User c = new User("c", 3);
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addEdge(a, b);
+		
+		assertEquals(0, g.exactInfection(2, 40));
+		assertEquals(40, a.getSiteAccessed());
+		assertEquals(40, b.getSiteAccessed());
+		assertEquals(3, c.getSiteAccessed());
+	}
+	
+	//testing exactInfection carving a region out of a chain, which only needs one edge cut
+	@Test
+	public void pliExactChainTest() {
+		UserGraph g = new UserGraph();
+		User[] chain = new User[10];
+		for (int i = 0; i < 10; i++) {
+			chain[i] = new User("u" + i, 1);
+			g.addUser(chain[i]);
+			if (i > 0) {
+				g.addEdge(chain[i - 1], chain[i]);
+			}
+		}
+		
+		assertEquals(1, g.exactInfection(4, 40));
+		assertEquals(4, g.countVersion(40));
+		
+		//the region is connected and starts at one end of the chain
+		boolean front = chain[0].getSiteAccessed() == 40 && chain[3].getSiteAccessed() == 40;
+		boolean back = chain[9].getSiteAccessed() == 40 && chain[6].getSiteAccessed() == 40;
+		assertTrue(front || back);
+	}
+	
+	//testing exactInfection carving out of two cliques joined by one edge, where the cut is that edge
+	@Test
+	public void pliExactCliquesTest() {
+		UserGraph g = new UserGraph();
+		User[] users = new User[10];
+		for (int i = 0; i < 10; i++) {
+			users[i] = new User("u" + i, 1);
+			g.addUser(users[i]);
+		}
+		for (int i = 0; i < 10; i++) {
+			for (int j = i + 1; j < 10; j++) {
+				if (i / 5 == j / 5) {
+					g.addEdge(users[i], users[j]);
+				}
+			}
+		}
+		g.addEdge(users[4], users[5]);
+		
+		assertEquals(1, g.exactInfection(5, 40));
+		assertEquals(5, g.countVersion(40));
+		assertEquals(users[0].getSiteAccessed(), users[4].getSiteAccessed());
+		assertEquals(users[5].getSiteAccessed(), users[9].getSiteAccessed());
+	}
+	
+	//testing exactInfection when n is more than the number of users
+	@Test(expected = UnsupportedOperationException.class)
+	public void pliExactTooLargeTest() {
+		UserGraph g = new UserGraph();
+		g.addUser(new User("a", 1));
+		g.exactInfection(2, 40);
+	}
+	
+	//testing exactInfection on random graphs, checking the count and the reported cut
+	@Test
+	public void pliExactRandomTest() {
+		Random rand = new Random(23);
+		for (int trial = 0; trial < 50; trial++) {
+			UserGraph g = new UserGraph();
+			int size = 1 + rand.nextInt(60);
+			User[] users = new User[size];
+			for (int i = 0; i < size; i++) {
+				users[i] = new User("u" + i, 1);
+				g.addUser(users[i]);
+			}
+			int numEdges = rand.nextInt(2 * size);
+			for (int e = 0; e < numEdges; e++) {
+				g.addEdge(users[rand.nextInt(size)], users[rand.nextInt(size)]);
+			}
+			
+			int n = rand.nextInt(size + 1);
+			int cut = g.exactInfection(n, 40);
+			assertEquals(n, g.countVersion(40));
+			
+			int expected = 0;
+			for (User u : users) {
+				for (User v : u.getNeighbors()) {
+					if (u.getSiteAccessed() == 40 && v.getSiteAccessed() != 40) {
+						expected++;
+					}
+				}
+			}
+			assertEquals(expected, cut);
+		}
+	}
 
 }
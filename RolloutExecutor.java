@@ -0,0 +1,245 @@
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+public class RolloutExecutor implements Consumer<User>, AutoCloseable {
+	
+	/** Applies version changes to a RolloutSink off the infection's thread. It's passed as the
+	 * changed argument of an infection, such as graph.limitedInfection(n, sv, rollout), so the
+	 * traversal only appends each changed user's ID and new version to a batch. Every full batch is
+	 * handed to the sink on the executor's threads. <p>
+	 *
+	 * Users are hashed by ID onto maxInFlight lanes, each filling batches of its own, and a lane 
+	 * hands its next batch over only once the last one has been written. So at most maxInFlight 
+	 * batches are being written at once, and every change to a user is written in the order it was 
+	 * made, since all of them go through the same lane: the sink ends up on each user's latest 
+	 * version. Once a lane's batch is full while its last one is still being written, accept blocks 
+	 * until that write finishes, so a slow sink slows the traversal down rather than letting batches
+	 * pile up in memory. close() writes the last partial batches and waits for every batch to 
+	 * finish. <p>
+	 *
+	 * By default batches run on virtual threads when the JVM has them (Java 21 and later), and on a
+	 * cached pool of daemon threads otherwise, which is fine since no more than maxInFlight of them
+	 * are ever busy. accept and close must be called from one thread at a time, like the infections
+	 * that call them.
+	 */
+	
+	private final RolloutSink sink;
+	private final Executor executor;
+	
+	//whether executor was made here, so it should be shut down by close
+	private final boolean ownsExecutor;
+	
+	private final int batchSize;
+	private final int numLanes;
+	
+	//laneBusy[l] has no permit while lane l's last batch is being written
+	private final Semaphore[] laneBusy;
+	
+	//the batch each lane is filling
+	private final String[][] batchIDs;
+	private final int[][] batchVersions;
+	private final int[] batchCount;
+	
+	//number of users queued, written and lost to failed batches, and the first failure
+	private final AtomicLong queued;
+	private final AtomicLong written;
+	private final AtomicLong failed;
+	private final AtomicReference<Throwable> firstFailure;
+	
+	private boolean closed;
+	
+	/** Creates an executor that writes to sink on its own threads.
+	 *  @param sink        Where the version changes are written
+	 *  @param batchSize   The number of users in each batch
+	 *  @param maxInFlight The most batches that may be being written at once
+	 */
+	public RolloutExecutor(RolloutSink sink, int batchSize, int maxInFlight) {
+		this(sink, defaultExecutor(), true, batchSize, maxInFlight);
+	}
+	
+	/** Creates an executor that writes to sink on executor, which is left running by close.
+	 *  @param sink        Where the version changes are written
+	 *  @param executor    Runs the batches
+	 *  @param batchSize   The number of users in each batch
+	 *  @param maxInFlight The most batches that may be being written at once
+	 */
+	public RolloutExecutor(RolloutSink sink, Executor executor, int batchSize, int maxInFlight) {
+		this(sink, executor, false, batchSize, maxInFlight);
+	}
+	
+	private RolloutExecutor(RolloutSink sink, Executor executor, boolean ownsExecutor, int batchSize,
+			int maxInFlight) {
+		if (sink == null || executor == null) {
+			throw new NullPointerException();
+		}
+		if (batchSize <= 0 || maxInFlight <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.sink = sink;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.batchSize = batchSize;
+		numLanes = maxInFlight;
+		laneBusy = new Semaphore[numLanes];
+		batchIDs = new String[numLanes][];
+		batchVersions = new int[numLanes][];
+		batchCount = new int[numLanes];
+		for (int l = 0; l < numLanes; l++) {
+			laneBusy[l] = new Semaphore(1);
+			batchIDs[l] = new String[batchSize];
+			batchVersions[l] = new int[batchSize];
+		}
+		queued = new AtomicLong();
+		written = new AtomicLong();
+		failed = new AtomicLong();
+		firstFailure = new AtomicReference<Throwable>();
+	}
+	
+	//returns a virtual-thread-per-task executor if the JVM has one, or a cached daemon pool otherwise
+	static ExecutorService defaultExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "rollout");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+	
+	/* queues u's current site version to be written, blocking while the last batch of u's lane is 
+	still being written and the one being filled is full */
+	public void accept(User u) {
+		if (closed) {
+			throw new IllegalStateException();
+		}
+		int h = u.getUserID().hashCode();
+		int l = ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % numLanes;
+		batchIDs[l][batchCount[l]] = u.getUserID();
+		batchVersions[l][batchCount[l]++] = u.getSiteAccessed();
+		queued.incrementAndGet();
+		if (batchCount[l] == batchSize) {
+			submit(l);
+		}
+	}
+	
+	//hands the partial batches to the sink, waiting only for lanes whose last batch is still out
+	public void flush() {
+		if (closed) {
+			throw new IllegalStateException();
+		}
+		for (int l = 0; l < numLanes; l++) {
+			if (batchCount[l] > 0) {
+				submit(l);
+			}
+		}
+	}
+	
+	/** Writes the last partial batches and waits for every batch to be written.
+	 *  @throws IllegalStateException if any batch failed, with the first failure as its cause
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		flush();
+		closed = true;
+		
+		//every lane's permit is back once its last batch has finished
+		for (Semaphore busy : laneBusy) {
+			busy.acquireUninterruptibly();
+			busy.release();
+		}
+		if (ownsExecutor) {
+			((ExecutorService) executor).shutdown();
+		}
+		
+		Throwable t = firstFailure.get();
+		if (t != null) {
+			throw new IllegalStateException(t);
+		}
+	}
+	
+	/** Waits up to timeout for the batches handed to the sink so far to be written, without closing.
+	 *  @return whether they were all written in time
+	 */
+	public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (Semaphore busy : laneBusy) {
+			if (!busy.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+			busy.release();
+		}
+		return true;
+	}
+	
+	//returns the number of users queued so far
+	public long queued() {
+		return queued.get();
+	}
+	
+	//returns the number of users whose batch was written
+	public long written() {
+		return written.get();
+	}
+	
+	//returns the number of users whose batch failed
+	public long failed() {
+		return failed.get();
+	}
+	
+	//returns the first exception a batch failed with, or null if none has
+	public Throwable firstFailure() {
+		return firstFailure.get();
+	}
+	
+	//helper function that sends lane l's batch off, once the lane's last batch has been written
+	private void submit(int l) {
+		int count = batchCount[l];
+		String[] ids = count == batchSize ? batchIDs[l] : Arrays.copyOf(batchIDs[l], count);
+		int[] vs = count == batchSize ? batchVersions[l] : Arrays.copyOf(batchVersions[l], count);
+		batchIDs[l] = new String[batchSize];
+		batchVersions[l] = new int[batchSize];
+		batchCount[l] = 0;
+		
+		//an interrupted traversal still hands its batch over, so no change is lost
+		Semaphore busy = laneBusy[l];
+		busy.acquireUninterruptibly();
+		try {
+			executor.execute(() -> write(ids, vs, busy));
+		} catch (RejectedExecutionException e) {
+			busy.release();
+			fail(ids.length, e);
+		}
+	}
+	
+	//helper function that writes one batch on the executor and frees its lane
+	private void write(String[] ids, int[] vs, Semaphore busy) {
+		try {
+			sink.write(ids, vs);
+			written.addAndGet(ids.length);
+		} catch (Throwable t) {
+			fail(ids.length, t);
+		} finally {
+			busy.release();
+		}
+	}
+	
+	//helper function that records a batch of count users as failed with t
+	private void fail(int count, Throwable t) {
+		failed.addAndGet(count);
+		firstFailure.compareAndSet(null, t);
+	}
+	
+}
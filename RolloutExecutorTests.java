@@ -0,0 +1,161 @@
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RolloutExecutorTests {
+	
+	//adds a chain of users[0...] on version 1 to a new graph
+	private static UserGraph chain(User[] users) {
+		UserGraph g = new UserGraph();
+		for (int i = 0; i < users.length; i++) {
+			users[i] = new User("u" + i, 1);
+			g.addUser(users[i]);
+			if (i > 0) {
+				g.addEdge(users[i - 1], users[i]);
+			}
+		}
+		return g;
+	}
+	
+	//testing that every changed user reaches the sink with its new version
+	@Test
+	public void roTotalInfectionTest() {
+		User[] users = new User[1000];
+		UserGraph g = chain(users);
+		InMemoryRolloutSink sink = new InMemoryRolloutSink();
+		RolloutExecutor rollout = new RolloutExecutor(sink, 64, 4);
+		g.totalInfection(users[0], 7, rollout);
+		rollout.close();
+		
+		assertEquals(1000, rollout.queued());
+		assertEquals(1000, rollout.written());
+		assertEquals(0, rollout.failed());
+		assertEquals(1000, sink.versions().size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(7, sink.versionOf("u" + i));
+		}
+		
+		//1000 users split across 4 lanes, each filling batches of 64
+		assertTrue(sink.batches() >= 16 && sink.batches() <= 19);
+	}
+	
+	//testing that users already on the version aren't written again
+	@Test
+	public void roUnchangedTest() {
+		User[] users = new User[10];
+		UserGraph g = chain(users);
+		InMemoryRolloutSink sink = new InMemoryRolloutSink();
+		g.totalInfection(users[0], 7);
+		RolloutExecutor rollout = new RolloutExecutor(sink, 4, 2);
+		g.limitedInfection(10, 7, rollout);
+		rollout.close();
+		
+		assertEquals(0, rollout.queued());
+		assertEquals(0, sink.batches());
+	}
+	
+	//testing that no more than maxInFlight batches are written at once with a slow sink
+	@Test
+	public void roInFlightTest() {
+		User[] users = new User[200];
+		UserGraph g = chain(users);
+		InMemoryRolloutSink sink = new InMemoryRolloutSink(5);
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		RolloutExecutor rollout = new RolloutExecutor(sink, pool, 5, 3);
+		g.totalInfection(users[0], 7, rollout);
+		rollout.close();
+		pool.shutdown();
+		
+		assertEquals(200, sink.versions().size());
+		assertTrue(sink.batches() >= 40 && sink.batches() <= 42);
+		assertTrue(sink.maxConcurrentWrites() <= 3);
+	}
+	
+	//testing that a user changed twice ends up on its latest version even if the first write is slow
+	@Test
+	public void roOrderTest() {
+		User[] users = new User[20];
+		UserGraph g = chain(users);
+		java.util.concurrent.ConcurrentHashMap<String, Integer> store = 
+				new java.util.concurrent.ConcurrentHashMap<String, Integer>();
+		java.util.concurrent.atomic.AtomicInteger calls = new java.util.concurrent.atomic.AtomicInteger();
+		RolloutExecutor rollout = new RolloutExecutor((ids, vs) -> {
+			if (calls.getAndIncrement() == 0) {
+				Thread.sleep(100);
+			}
+			for (int i = 0; i < ids.length; i++) {
+				store.put(ids[i], vs[i]);
+			}
+		}, 1, 4);
+		g.totalInfection(users[0], 5, rollout);
+		g.totalInfection(users[0], 6, rollout);
+		rollout.close();
+		
+		assertEquals(40, rollout.written());
+		for (User u : users) {
+			assertEquals(6, (int) store.get(u.getUserID()));
+		}
+	}
+	
+	//testing that a failing sink is reported by close, with the failed users counted
+	@Test
+	public void roFailureTest() {
+		User[] users = new User[10];
+		UserGraph g = chain(users);
+		RolloutExecutor rollout = new RolloutExecutor((ids, vs) -> {
+			if (ids[0].equals("u0")) {
+				throw new java.io.IOException();
+			}
+		}, 5, 1);
+		g.limitedInfection(10, 7, rollout);
+		try {
+			rollout.close();
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof java.io.IOException);
+		}
+		assertEquals(5, rollout.failed());
+		assertEquals(5, rollout.written());
+	}
+	
+	//testing that await waits for batches already handed over, and flush hands over a partial one
+	@Test
+	public void roAwaitTest() throws InterruptedException {
+		InMemoryRolloutSink sink = new InMemoryRolloutSink(1);
+		RolloutExecutor rollout = new RolloutExecutor(sink, 10, 2);
+		User a = new User("a", 3);
+		rollout.accept(a);
+		assertTrue(rollout.await(1, TimeUnit.SECONDS));
+		assertEquals(0, sink.batches());
+		
+		rollout.flush();
+		assertTrue(rollout.await(1, TimeUnit.SECONDS));
+		assertEquals(1, sink.batches());
+		assertEquals(3, sink.versionOf("a"));
+		rollout.close();
+	}
+	
+	//testing that users can't be queued after close
+	@Test(expected = IllegalStateException.class)
+	public void roClosedTest() {
+		RolloutExecutor rollout = new RolloutExecutor(new InMemoryRolloutSink(), 10, 2);
+		rollout.close();
+		rollout.accept(new User("a", 1));
+	}
+	
+	//testing bad arguments
+	@Test(expected = IllegalArgumentException.class)
+	public void roBatchSizeTest() {
+		new RolloutExecutor(new InMemoryRolloutSink(), 0, 2);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void roNullSinkTest() {
+		new RolloutExecutor(null, 10, 2);
+	}
+
+}
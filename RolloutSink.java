@@ -0,0 +1,16 @@
+public interface RolloutSink {
+	
+	/** Where a RolloutExecutor writes version changes, such as a per-user config store. Batches are
+	 * written from the executor's threads, up to its in-flight limit at once, so a sink has to be
+	 * thread-safe. Batches holding the same user are never written at the same time, and a batch 
+	 * may hold a user more than once, in which case the later entry is the newer version. A batch 
+	 * is written once, and if write throws, the whole batch counts as failed.
+	 */
+	
+	/** Writes one batch of version changes.
+	 *  @param userIDs  The users whose version changed
+	 *  @param versions versions[i] is the version userIDs[i] was changed to
+	 */
+	void write(String[] userIDs, int[] versions) throws Exception;
+	
+}
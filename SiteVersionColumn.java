@@ -0,0 +1,131 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class SiteVersionColumn {
+	
+	/** The site version of every user in a graph, stored as one int per user in a flat array indexed 
+	 * by the user's dense index. Users that belong to a graph read and write their version here 
+	 * rather than in their own field, so bulk operations like resetting everyone to a baseline or 
+	 * counting the users on a version are a single sequential pass over the array instead of a walk
+	 * over every User object.
+	 */
+	
+	//versions[i] is the site version of the user with dense index i
+	private int[] versions;
+	
+	//number of users
+	private int size;
+	
+	//constructor
+	public SiteVersionColumn() {
+		this(16);
+	}
+	
+	//constructor that makes room for expected users
+	public SiteVersionColumn(int expected) {
+		versions = new int[Math.max(16, expected)];
+	}
+	
+	//wraps versions, where versions[i] is the version of the user in slot i
+	SiteVersionColumn(int[] versions) {
+		this.versions = versions;
+		size = versions.length;
+	}
+	
+	//returns number of users
+	public int size() {
+		return size;
+	}
+	
+	//adds a user on version sv, returns the user's slot
+	public int add(int sv) {
+		if (size == versions.length) {
+			versions = Arrays.copyOf(versions, Math.max(16, size * 2));
+		}
+		versions[size] = sv;
+		return size++;
+	}
+	
+	//removes the last slot
+	public void removeLast() {
+		if (size == 0) {
+			throw new IndexOutOfBoundsException();
+		}
+		size--;
+	}
+	
+	//returns a copy of the column
+	SiteVersionColumn copy() {
+		return new SiteVersionColumn(Arrays.copyOf(versions, size));
+	}
+	
+	//returns the version of the user in slot i
+	public int get(int i) {
+		checkSlot(i);
+		return versions[i];
+	}
+	
+	//sets the version of the user in slot i
+	public void set(int i, int sv) {
+		checkSlot(i);
+		versions[i] = sv;
+	}
+	
+	/* sets the version of the users in slots[from...to-1] to sv, such as every user in a CC, and 
+	reorders those slots so the ones whose version changed come first. returns how many changed */
+	public int setAll(int[] slots, int from, int to, int sv) {
+		int next = from;
+		for (int k = from; k < to; k++) {
+			int i = slots[k];
+			checkSlot(i);
+			if (versions[i] != sv) {
+				versions[i] = sv;
+				slots[k] = slots[next];
+				slots[next++] = i;
+			}
+		}
+		return next - from;
+	}
+	
+	//moves every user to version sv
+	public void fill(int sv) {
+		Arrays.fill(versions, 0, size, sv);
+	}
+	
+	//returns number of users on version sv
+	public int count(int sv) {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (versions[i] == sv) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	//returns the number of users on each version that at least one user is on
+	public HashMap<Integer, Integer> counts() {
+		HashMap<Integer, Integer> counts = new HashMap<Integer, Integer>();
+		
+		//users on the same version tend to be next to each other, so count whole runs at a time
+		int i = 0;
+		while (i < size) {
+			int sv = versions[i];
+			int j = i + 1;
+			while (j < size && versions[j] == sv) {
+				j++;
+			}
+			counts.merge(sv, j - i, Integer::sum);
+			i = j;
+		}
+		return counts;
+	}
+	
+	//throws an IndexOutOfBoundsException if i isn't a slot in the column
+	private void checkSlot(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+	
+}
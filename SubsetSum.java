@@ -0,0 +1,362 @@
+import java.util.Arrays;
+
+public class SubsetSum {
+	
+	/** Subset-sum engine used by limited_infection to pick which connected components to infect. 
+	 * The set of reachable sums is kept as a bitset in a long[], so adding an item of size s is a 
+	 * shift-by-s OR over n/64 words instead of n int comparisons. Rather than keeping a whole DP 
+	 * table for reconstruction, we record for each sum the item that first made it reachable: the sum
+	 * it was reached from was already reachable before that item, so following these records back 
+	 * from the best sum visits distinct items. This needs O(n) words of memory in total, no matter
+	 * how many items there are. <p>
+	 * 
+	 * Real graphs have a long tail of components with the same size (singletons, pairs, small 
+	 * classrooms), and the components' sizes add up to the number of users N, so there are only 
+	 * O(sqrt(N)) distinct sizes. findSubsetGrouped takes advantage of this by solving a bounded 
+	 * subset-sum over the distinct sizes instead.
+	 */
+	
+	/** Finds a subset of items whose sizes add up to the largest possible value that is <= n. Items 
+	 *  of size 0 are never chosen.
+	 *  @param sizes  sizes[0...k-1] are the sizes of the items
+	 *  @param k      The number of items
+	 *  @param n      The maximum sum
+	 *  @param chosen chosen[x] is set to true for each item x in the subset, and left alone otherwise
+	 *  @return the sum of the chosen items
+	 */
+	public static int findSubset(int[] sizes, int k, int n, boolean[] chosen) {
+		if (n < 0) {
+			throw new IllegalArgumentException();
+		}
+		return solve(sizes, k, n, chosen);
+	}
+	
+	/** Same as findSubset, but items are first grouped by size. A group of c items of size s is split 
+	 *  into bundles of 1, 2, 4, ... items plus a remainder, which can be combined to take any number
+	 *  of items from 0 to c, so the bitset only has to be shifted O(log c) times per distinct size 
+	 *  rather than c times. Items within a group are interchangeable, so the items chosen may differ 
+	 *  from findSubset's, but the sum is always the same.
+	 *  @param sizes  sizes[0...k-1] are the sizes of the items
+	 *  @param k      The number of items
+	 *  @param n      The maximum sum
+	 *  @param chosen chosen[x] is set to true for each item x in the subset, and left alone otherwise
+	 *  @return the sum of the chosen items
+	 */
+	public static int findSubsetGrouped(int[] sizes, int k, int n, boolean[] chosen) {
+		return findSubsetGrouped(sizes, k, n, chosen, false);
+	}
+	
+	/* same as findSubsetGrouped, but if largestFirst is true the bundles are added largest first, so
+	sums are first reached with large items and the subset found leans on them. this leaves the small
+	items for later calls when several targets are filled one after another */
+	static int findSubsetGrouped(int[] sizes, int k, int n, boolean[] chosen, boolean largestFirst) {
+		return findSubsetGrouped(sizes, k, n, chosen, largestFirst, null);
+	}
+	
+	/* same as findSubsetGrouped, reporting the cells computed and bytes allocated to listener unless 
+	it's null */
+	static int findSubsetGrouped(int[] sizes, int k, int n, boolean[] chosen, boolean largestFirst, 
+			InfectionListener listener) {
+		return findSubsetGrouped(sizes, k, n, chosen, largestFirst, listener, null);
+	}
+	
+	/* same as findSubsetGrouped, also reporting each row of the bitset to task unless it's null, which
+	throws a CancellationException between rows once task is cancelled */
+	static int findSubsetGrouped(int[] sizes, int k, int n, boolean[] chosen, boolean largestFirst, 
+			InfectionListener listener, InfectionTask task) {
+		if (n < 0) {
+			throw new IllegalArgumentException();
+		}
+		
+		Bundles bundles = new Bundles(sizes, k, n);
+		int numBundles = bundles.numBundles;
+		boolean[] bundleChosen = new boolean[numBundles];
+		int sum;
+		if (largestFirst) {
+			int[] reversed = new int[numBundles];
+			for (int b = 0; b < numBundles; b++) {
+				reversed[b] = bundles.size[numBundles - 1 - b];
+			}
+			boolean[] reversedChosen = new boolean[numBundles];
+			sum = solve(reversed, numBundles, n, reversedChosen, listener, 
+					bundles.bytes() + 6L * numBundles, task);
+			for (int b = 0; b < numBundles; b++) {
+				bundleChosen[b] = reversedChosen[numBundles - 1 - b];
+			}
+		} else {
+			sum = solve(bundles.size, numBundles, n, bundleChosen, listener, bundles.bytes() + numBundles, 
+					task);
+		}
+		
+		//choose as many items from the front of each group as its chosen bundles hold
+		int taken = 0;
+		for (int b = 0; b < numBundles; b++) {
+			if (b == 0 || bundles.group[b] != bundles.group[b - 1]) {
+				taken = 0;
+			}
+			if (bundleChosen[b]) {
+				for (int t = 0; t < bundles.count[b]; t++) {
+					chosen[bundles.item(bundles.group[b] + taken++)] = true;
+				}
+			}
+		}
+		
+		return sum;
+	}
+	
+	/* same as findSubsetGrouped, but stops looking for the best sum once System.nanoTime() passes 
+	deadline. bundles are added to the bitset largest first, and when time runs out the best sum of 
+	the bundles added so far is topped up greedily with the remaining items, largest first. returns 
+	{sum, bound}, where bound is an upper bound on the best possible sum: no subset can beat the best 
+	one of the added bundles by more than the total size of the items left out, so 
+	bound = min(n, best + left out). the sum is optimal if sum == bound */
+	static int[] findSubsetWithin(int[] sizes, int k, int n, boolean[] chosen, long deadline) {
+		return findSubsetWithin(sizes, k, n, chosen, deadline, null);
+	}
+	
+	/* same as findSubsetWithin, reporting the cells computed and bytes allocated to listener unless 
+	it's null */
+	static int[] findSubsetWithin(int[] sizes, int k, int n, boolean[] chosen, long deadline, 
+			InfectionListener listener) {
+		if (n < 0) {
+			throw new IllegalArgumentException();
+		}
+		
+		Bundles bundles = new Bundles(sizes, k, n);
+		int numBundles = bundles.numBundles;
+		Reach r = new Reach(n);
+		int b = numBundles - 1;
+		while (b >= 0 && r.max < n && System.nanoTime() - deadline < 0) {
+			r.add(b, bundles.size[b]);
+			b--;
+		}
+		
+		//start[c] is the position in the sorted order of bundle c's first item
+		int[] start = new int[numBundles];
+		for (int c = 0; c < numBundles; c++) {
+			boolean sameGroup = c > 0 && bundles.group[c] == bundles.group[c - 1];
+			start[c] = sameGroup ? start[c - 1] + bundles.count[c - 1] : bundles.group[c];
+		}
+		if (listener != null) {
+			listener.count(InfectionListener.Counter.DP_CELLS, r.cells);
+			listener.count(InfectionListener.Counter.TABLE_BYTES, 
+					r.bytes() + bundles.bytes() + 4L * numBundles);
+		}
+		
+		//choose the items of the bundles on the path back from the best sum
+		for (int m = r.max; m > 0; m -= bundles.size[r.first[m] - 1]) {
+			int c = r.first[m] - 1;
+			for (int p = start[c]; p < start[c] + bundles.count[c]; p++) {
+				chosen[bundles.item(p)] = true;
+			}
+		}
+		
+		//top up with the items of the bundles that were never added, if the best sum isn't n
+		int sum = r.max;
+		long leftOut = 0;
+		if (sum < n) {
+			for (int c = b; c >= 0; c--) {
+				for (int p = start[c] + bundles.count[c] - 1; p >= start[c]; p--) {
+					int s = (int) (bundles.bySize[p] >>> 32);
+					leftOut += s;
+					if (s <= n - sum) {
+						chosen[bundles.item(p)] = true;
+						sum += s;
+					}
+				}
+			}
+		}
+		
+		return new int[] {sum, (int) Math.min(n, r.max + leftOut)};
+	}
+	
+	/* the items of a grouped subset-sum, sorted by size and split into bundles. bundle b holds 
+	count[b] items of total size size[b], taken from the group of equal-sized items that starts at
+	position group[b] of the sorted order */
+	static class Bundles {
+		
+		//items that can fit in n, sorted by size, with each item's index in the low 32 bits
+		final long[] bySize;
+		
+		final int[] size;
+		final int[] count;
+		final int[] group;
+		final int numBundles;
+		
+		Bundles(int[] sizes, int k, int n) {
+			bySize = new long[k];
+			int numItems = 0;
+			for (int x = 0; x < k; x++) {
+				if (sizes[x] > 0 && sizes[x] <= n) {
+					bySize[numItems++] = ((long) sizes[x] << 32) | x;
+				}
+			}
+			Arrays.sort(bySize, 0, numItems);
+			
+			//split each group of equal sizes into bundles of 1, 2, 4, ... items plus a remainder
+			size = new int[numItems];
+			count = new int[numItems];
+			group = new int[numItems];
+			int b = 0;
+			for (int i = 0; i < numItems;) {
+				int s = (int) (bySize[i] >>> 32);
+				int j = i;
+				while (j < numItems && (int) (bySize[j] >>> 32) == s) {
+					j++;
+				}
+				
+				//no more than n / s items of size s can ever be chosen
+				int c = Math.min(j - i, n / s);
+				for (int mult = 1; c > 0; mult *= 2) {
+					int take = Math.min(mult, c);
+					size[b] = take * s;
+					count[b] = take;
+					group[b++] = i;
+					c -= take;
+				}
+				i = j;
+			}
+			numBundles = b;
+		}
+		
+		//returns the number of bytes of the bundle tables
+		long bytes() {
+			return 8L * bySize.length + 12L * size.length;
+		}
+		
+		//returns the index of the item at position p of the sorted order
+		int item(int p) {
+			return (int) bySize[p];
+		}
+	}
+	
+	/* the reachable sums of a bitset subset-sum up to n, with items added one at a time. first[m] - 1
+	is the item that first made sum m reachable, or first[m] == 0 if m is 0 or can't be reached yet. 
+	following first back from any reachable sum visits distinct items in decreasing order */
+	static class Reach {
+		
+		//bit m of reach is set if some subset of the items added so far sums to m
+		private final long[] reach;
+		final int[] first;
+		private final int n;
+		
+		//bits above n in the last word are never set
+		private final long lastMask;
+		
+		//largest reachable sum
+		int max;
+		
+		//number of (item, sum) cells computed so far, 64 per word shifted in
+		long cells;
+		
+		Reach(int n) {
+			this.n = n;
+			reach = new long[(n >>> 6) + 1];
+			reach[0] = 1L;
+			first = new int[n + 1];
+			lastMask = -1L >>> (63 - (n & 63));
+		}
+		
+		//returns the number of bytes of the bitset and the first table
+		long bytes() {
+			return 8L * reach.length + 4L * first.length;
+		}
+		
+		//adds item x of size s
+		void add(int x, int s) {
+			if (s <= 0 || s > n) {
+				return;
+			}
+			
+			int shiftWords = s >>> 6;
+			int shiftBits = s & 63;
+			int hi = Math.min(n, max + s) >>> 6;
+			cells += (long) (hi - shiftWords + 1) << 6;
+			
+			//go from high words to low so each word is shifted in before it is updated
+			for (int w = hi; w >= shiftWords; w--) {
+				long shifted = reach[w - shiftWords] << shiftBits;
+				if (shiftBits != 0 && w - shiftWords > 0) {
+					shifted |= reach[w - shiftWords - 1] >>> (64 - shiftBits);
+				}
+				if (w == reach.length - 1) {
+					shifted &= lastMask;
+				}
+				
+				//record the sums that this item makes reachable for the first time
+				long added = shifted & ~reach[w];
+				if (added != 0) {
+					reach[w] |= added;
+					max = Math.max(max, (w << 6) + 63 - Long.numberOfLeadingZeros(added));
+					while (added != 0) {
+						first[(w << 6) + Long.numberOfTrailingZeros(added)] = x + 1;
+						added &= added - 1;
+					}
+				}
+			}
+		}
+	}
+	
+	/* helper function that runs the bitset subset-sum over sizes[0...k-1] up to n, and returns the
+	first table of Reach. if stopAtN is true it stops as soon as n is reachable, so first is only 
+	complete for sum n */
+	static int[] reachTable(int[] sizes, int k, int n, boolean stopAtN) {
+		return reachTable(sizes, k, n, stopAtN, null);
+	}
+	
+	/* same as reachTable, reporting the cells computed and bytes allocated to listener unless it's 
+	null */
+	static int[] reachTable(int[] sizes, int k, int n, boolean stopAtN, InfectionListener listener) {
+		Reach r = new Reach(n);
+		for (int x = 0; x < k && (r.max < n || !stopAtN); x++) {
+			r.add(x, sizes[x]);
+		}
+		if (listener != null) {
+			listener.count(InfectionListener.Counter.DP_CELLS, r.cells);
+			listener.count(InfectionListener.Counter.TABLE_BYTES, r.bytes());
+		}
+		return r.first;
+	}
+	
+	//helper function that runs the bitset subset-sum over sizes[0...k-1]
+	private static int solve(int[] sizes, int k, int n, boolean[] chosen) {
+		return solve(sizes, k, n, chosen, null, 0, null);
+	}
+	
+	/* same as solve, but reports the cells computed and the bytes allocated to listener unless it's 
+	null, counting extraBytes already allocated by the caller as well, and each row to task unless 
+	it's null */
+	private static int solve(int[] sizes, int k, int n, boolean[] chosen, InfectionListener listener, 
+			long extraBytes, InfectionTask task) {
+		Reach r = new Reach(n);
+		if (task != null) {
+			task.dpStarted(k);
+		}
+		for (int x = 0; x < k && r.max < n; x++) {
+			r.add(x, sizes[x]);
+			if (task != null) {
+				task.dpRowDone();
+			}
+		}
+		int[] first = r.first;
+		if (listener != null) {
+			listener.count(InfectionListener.Counter.DP_CELLS, r.cells);
+			listener.count(InfectionListener.Counter.TABLE_BYTES, r.bytes() + extraBytes);
+		}
+		
+		//walk back from the best sum, choosing the item that first reached each sum
+		int max = n;
+		while (max > 0 && first[max] == 0) {
+			max--;
+		}
+		int m = max;
+		while (m > 0) {
+			int x = first[m] - 1;
+			chosen[x] = true;
+			m = m - sizes[x];
+		}
+		
+		return max;
+	}
+	
+}
@@ -0,0 +1,150 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SubsetSumTests {
+
+	//reference implementation: the largest reachable sum <= n, found with a plain boolean table
+	private static int bruteForce(int[] sizes, int k, int n) {
+		boolean[] reach = new boolean[n + 1];
+		reach[0] = true;
+		for (int x = 0; x < k; x++) {
+			for (int m = n; m >= sizes[x]; m--) {
+				reach[m] = reach[m] || reach[m - sizes[x]];
+			}
+		}
+		int m = n;
+		while (!reach[m]) {
+			m--;
+		}
+		return m;
+	}
+	
+	//checks that the chosen items add up to the returned sum
+	private static void checkChosen(int[] sizes, int k, int sum, boolean[] chosen) {
+		int total = 0;
+		for (int x = 0; x < k; x++) {
+			if (chosen[x]) {
+				total += sizes[x];
+			}
+		}
+		assertEquals(total, sum);
+	}
+	
+	//testing with no items
+	@Test
+	public void ssNoItemsTest() {
+		boolean[] chosen = new boolean[0];
+		assertEquals(SubsetSum.findSubset(new int[0], 0, 10, chosen), 0);
+	}
+	
+	//testing on negative n value
+	@Test(expected = IllegalArgumentException.class)
+	public void ssNegativeNTest() {
+		SubsetSum.findSubset(new int[] {1}, 1, -1, new boolean[1]);
+	}
+	
+	//testing when the items don't fit in n
+	@Test
+	public void ssTooLargeTest() {
+		boolean[] chosen = new boolean[2];
+		assertEquals(SubsetSum.findSubset(new int[] {5, 7}, 2, 4, chosen), 0);
+		assertFalse(chosen[0]);
+		assertFalse(chosen[1]);
+	}
+	
+	//testing sums that cross word boundaries of the bitset
+	@Test
+	public void ssWordBoundaryTest() {
+		int[] sizes = {63, 64, 65, 1, 128};
+		boolean[] chosen = new boolean[sizes.length];
+		assertEquals(SubsetSum.findSubset(sizes, sizes.length, 193, chosen), 193);
+		checkChosen(sizes, sizes.length, 193, chosen);
+	}
+	
+	//testing against the reference implementation on random inputs
+	@Test
+	public void ssRandomTest() {
+		Random r = new Random(42);
+		for (int t = 0; t < 500; t++) {
+			int k = r.nextInt(30);
+			int[] sizes = new int[k];
+			for (int x = 0; x < k; x++) {
+				sizes[x] = 1 + r.nextInt(r.nextBoolean() ? 10 : 200);
+			}
+			int n = r.nextInt(1000);
+			boolean[] chosen = new boolean[k];
+			int sum = SubsetSum.findSubset(sizes, k, n, chosen);
+			assertEquals(sum, bruteForce(sizes, k, n));
+			checkChosen(sizes, k, sum, chosen);
+		}
+	}
+	
+	//testing the grouped mode against the reference implementation, with many repeated sizes
+	@Test
+	public void ssGroupedRandomTest() {
+		Random r = new Random(7);
+		for (int t = 0; t < 500; t++) {
+			int k = r.nextInt(200);
+			int[] sizes = new int[k];
+			for (int x = 0; x < k; x++) {
+				sizes[x] = 1 + r.nextInt(r.nextBoolean() ? 3 : 50);
+			}
+			int n = r.nextInt(2000);
+			boolean[] chosen = new boolean[k];
+			int sum = SubsetSum.findSubsetGrouped(sizes, k, n, chosen);
+			assertEquals(sum, bruteForce(sizes, k, n));
+			checkChosen(sizes, k, sum, chosen);
+		}
+	}
+	
+	//testing that adding the bundles largest first finds the same sum
+	@Test
+	public void ssLargestFirstRandomTest() {
+		Random r = new Random(11);
+		for (int t = 0; t < 500; t++) {
+			int k = r.nextInt(200);
+			int[] sizes = new int[k];
+			for (int x = 0; x < k; x++) {
+				sizes[x] = 1 + r.nextInt(r.nextBoolean() ? 3 : 50);
+			}
+			int n = r.nextInt(2000);
+			boolean[] chosen = new boolean[k];
+			int sum = SubsetSum.findSubsetGrouped(sizes, k, n, chosen, true);
+			assertEquals(sum, bruteForce(sizes, k, n));
+			checkChosen(sizes, k, sum, chosen);
+		}
+	}
+	
+	//testing that the time-budgeted mode is exact with time to spare, and within its bound without
+	@Test
+	public void ssWithinRandomTest() {
+		Random r = new Random(13);
+		for (int t = 0; t < 500; t++) {
+			int k = r.nextInt(200);
+			int[] sizes = new int[k];
+			for (int x = 0; x < k; x++) {
+				sizes[x] = 1 + r.nextInt(r.nextBoolean() ? 3 : 50);
+			}
+			int n = r.nextInt(2000);
+			int best = bruteForce(sizes, k, n);
+			
+			boolean[] chosen = new boolean[k];
+			int[] found = SubsetSum.findSubsetWithin(sizes, k, n, chosen, System.nanoTime() + 60000000000L);
+			assertEquals(found[0], best);
+			assertEquals(found[1], best);
+			checkChosen(sizes, k, found[0], chosen);
+			
+			//with no time at all, the greedy fill still has to respect n and the bound
+			chosen = new boolean[k];
+			found = SubsetSum.findSubsetWithin(sizes, k, n, chosen, System.nanoTime() - 1);
+			assertTrue(found[0] <= best);
+			assertTrue(found[1] >= best);
+			assertTrue(found[1] <= n);
+			checkChosen(sizes, k, found[0], chosen);
+		}
+	}
+
+}
@@ -40,6 +40,126 @@ public class TestRunner {
 		for (Failure failure : pliResult.getFailures()) {
 			System.out.println(failure.toString());
 		}
+		
+		//Running tests for the compact graph snapshot
+		System.out.println("\nRunning tests for compact_user_graph");
+		Result cugResult = JUnitCore.runClasses(CompactUserGraphTests.class);
+		int cugTotalTests = cugResult.getFailureCount() + cugResult.getIgnoreCount() + 
+				cugResult.getRunCount();
+		System.out.println("Number of tests ran: " + cugTotalTests);
+		System.out.println("Number of tests passed: " + cugResult.getRunCount());
+		System.out.println("Number of tests failed: " + cugResult.getFailureCount());
+		for (Failure failure : cugResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
+		
+		//Running tests for the subset-sum engine
+		System.out.println("\nRunning tests for subset_sum");
+		Result ssResult = JUnitCore.runClasses(SubsetSumTests.class);
+		int ssTotalTests = ssResult.getFailureCount() + ssResult.getIgnoreCount() + 
+				ssResult.getRunCount();
+		System.out.println("Number of tests ran: " + ssTotalTests);
+		System.out.println("Number of tests passed: " + ssResult.getRunCount());
+		System.out.println("Number of tests failed: " + ssResult.getFailureCount());
+		for (Failure failure : ssResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
+		
+		//Running tests for the bulk edge list loader
+		System.out.println("\nRunning tests for edge_list_loader");
+		Result ellResult = JUnitCore.runClasses(EdgeListLoaderTests.class);
+		int ellTotalTests = ellResult.getFailureCount() + ellResult.getIgnoreCount() + 
+				ellResult.getRunCount();
+		System.out.println("Number of tests ran: " + ellTotalTests);
+		System.out.println("Number of tests passed: " + ellResult.getRunCount());
+		System.out.println("Number of tests failed: " + ellResult.getFailureCount());
+		for (Failure failure : ellResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
+		
+		//Running tests for the concurrent graph
+		System.out.println("\nRunning tests for concurrent_user_graph");
+		Result conResult = JUnitCore.runClasses(ConcurrentUserGraphTests.class);
+		int conTotalTests = conResult.getFailureCount() + conResult.getIgnoreCount() + 
+				conResult.getRunCount();
+		System.out.println("Number of tests ran: " + conTotalTests);
+		System.out.println("Number of tests passed: " + conResult.getRunCount());
+		System.out.println("Number of tests failed: " + conResult.getFailureCount());
+		for (Failure failure : conResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
+		
+		//Running tests for graph snapshots
+		System.out.println("\nRunning tests for graph_snapshot");
+		Result snapResult = JUnitCore.runClasses(GraphSnapshotTests.class);
+		int snapTotalTests = snapResult.getFailureCount() + snapResult.getIgnoreCount() + 
+				snapResult.getRunCount();
+		System.out.println("Number of tests ran: " + snapTotalTests);
+		System.out.println("Number of tests passed: " + snapResult.getRunCount());
+		System.out.println("Number of tests failed: " + snapResult.getFailureCount());
+		for (Failure failure : snapResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
+		
+		//Running tests for infection listeners
+		System.out.println("\nRunning tests for infection_listener");
+		Result lisResult = JUnitCore.runClasses(InfectionListenerTests.class);
+		int lisTotalTests = lisResult.getFailureCount() + lisResult.getIgnoreCount() + 
+				lisResult.getRunCount();
+		System.out.println("Number of tests ran: " + lisTotalTests);
+		System.out.println("Number of tests passed: " + lisResult.getRunCount());
+		System.out.println("Number of tests failed: " + lisResult.getFailureCount());
+		for (Failure failure : lisResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
+		
+		//Running tests for the off-heap graph
+		System.out.println("\nRunning tests for off_heap_user_graph");
+		Result offResult = JUnitCore.runClasses(OffHeapUserGraphTests.class);
+		int offTotalTests = offResult.getFailureCount() + offResult.getIgnoreCount() + 
+				offResult.getRunCount();
+		System.out.println("Number of tests ran: " + offTotalTests);
+		System.out.println("Number of tests passed: " + offResult.getRunCount());
+		System.out.println("Number of tests failed: " + offResult.getFailureCount());
+		for (Failure failure : offResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
+		
+		//Running tests for removing edges and users
+		System.out.println("\nRunning tests for graph_removal");
+		Result remResult = JUnitCore.runClasses(GraphRemovalTests.class);
+		int remTotalTests = remResult.getFailureCount() + remResult.getIgnoreCount() + 
+				remResult.getRunCount();
+		System.out.println("Number of tests ran: " + remTotalTests);
+		System.out.println("Number of tests passed: " + remResult.getRunCount());
+		System.out.println("Number of tests failed: " + remResult.getFailureCount());
+		for (Failure failure : remResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
+		
+		//Running tests for the rollout executor
+		System.out.println("\nRunning tests for rollout_executor");
+		Result roResult = JUnitCore.runClasses(RolloutExecutorTests.class);
+		int roTotalTests = roResult.getFailureCount() + roResult.getIgnoreCount() + 
+				roResult.getRunCount();
+		System.out.println("Number of tests ran: " + roTotalTests);
+		System.out.println("Number of tests passed: " + roResult.getRunCount());
+		System.out.println("Number of tests failed: " + roResult.getFailureCount());
+		for (Failure failure : roResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
+		
+		//Running tests for the asynchronous infections
+		System.out.println("\nRunning tests for async_infection");
+		Result asyncResult = JUnitCore.runClasses(AsyncInfectionTests.class);
+		int asyncTotalTests = asyncResult.getFailureCount() + asyncResult.getIgnoreCount() + 
+				asyncResult.getRunCount();
+		System.out.println("Number of tests ran: " + asyncTotalTests);
+		System.out.println("Number of tests passed: " + asyncResult.getRunCount());
+		System.out.println("Number of tests failed: " + asyncResult.getFailureCount());
+		for (Failure failure : asyncResult.getFailures()) {
+			System.out.println(failure.toString());
+		}
 	}
 
 }
@@ -206,5 +206,172 @@ public class TotalInfectionTests {
 		assertEquals(e.getSiteAccessed(), 70);
 		assertEquals(f.getSiteAccessed(), 70);
 		assertEquals(h.getSiteAccessed(), 70);
-	} 
+	}
+	
+	//testing on a chain long enough to overflow the thread stack if traversed recursively
+	@Test
+	public void tiLongChainTest() {
+		UserGraph g = new UserGraph();
+		User[] chain = new User[300000];
+		for (int x = 0; x < chain.length; x++) {
+			chain[x] = new User("u" + x, 1);
+			g.addUser(chain[x]);
+			if (x > 0) {
+				g.addEdge(chain[x - 1], chain[x]);
+			}
+		}
+		
+		g.totalInfection(chain[0], 10);
+		
+		assertEquals(chain[0].getSiteAccessed(), 10);
+		assertEquals(chain[chain.length / 2].getSiteAccessed(), 10);
+		assertEquals(chain[chain.length - 1].getSiteAccessed(), 10);
+	}
+	
+	//testing infection started from a user looked up by ID
+	@Test
+	public void tiByIdTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 2);
+		User c = new User("c", 3);
+		
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addEdge(a, b);
+		
+		assertSame(g.getUser("b"), b);
+		assertNull(g.getUser("z"));
+		assertEquals(g.indexOf("z"), -1);
+		
+		g.totalInfection(g.indexOf("b"), 10);
+		assertEquals(a.getSiteAccessed(), 10);
+		assertEquals(b.getSiteAccessed(), 10);
+		assertEquals(c.getSiteAccessed(), 3);
+	}
+	
+	//testing on an index that isn't in the graph
+	@Test(expected = IllegalArgumentException.class)
+	public void tiIllegalIndexTest() {
+		UserGraph g = new UserGraph();
+		g.addUser(new User("a", 1));
+		g.totalInfection(1, 10);
+	}
+	
+	//testing that a second user can't be added with an ID already in the graph
+	@Test(expected = IllegalArgumentException.class)
+	public void tiDuplicateIdTest() {
+		UserGraph g = new UserGraph();
+		g.addUser(new User("a", 1));
+		g.addUser(new User("a", 2));
+	}
+	
+	//testing bulk reset and counting of site versions
+	@Test
+	public void tiVersionColumnTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 2);
+		User c = new User("c", 3);
+		
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addEdge(a, b);
+		g.totalInfection(a, 10);
+		
+		assertEquals(g.countVersion(10), 2);
+		assertEquals(g.getSiteAccessed(g.indexOf(c)), 3);
+		assertEquals(g.versionCounts().size(), 2);
+		assertEquals((int) g.versionCounts().get(3), 1);
+		
+		g.resetVersions(0);
+		assertEquals(g.countVersion(0), 3);
+		assertEquals(a.getSiteAccessed(), 0);
+		assertEquals(c.getSiteAccessed(), 0);
+		
+		//a user's own writes go to the column too
+		c.access(7);
+		assertEquals(g.countVersion(7), 1);
+	}
+	
+	//testing that setting a range of slots puts the ones that changed first
+	@Test
+	public void tiColumnSetAllTest() {
+		SiteVersionColumn column = new SiteVersionColumn();
+		for (int sv : new int[] {1, 5, 2, 5, 3}) {
+			column.add(sv);
+		}
+		int[] slots = {9, 0, 1, 2, 3, 9};
+		assertEquals(column.setAll(slots, 1, 5, 5), 2);
+		assertEquals(slots[0], 9);
+		assertEquals(slots[5], 9);
+		assertEquals(java.util.Arrays.asList(slots[1], slots[2]), java.util.Arrays.asList(0, 2));
+		assertEquals(column.count(5), 4);
+		assertEquals(column.get(4), 3);
+		
+		try {
+			column.setAll(new int[] {5}, 0, 1, 1);
+			fail();
+		} catch (IndexOutOfBoundsException ex) {
+		}
+	}
+	
+	//testing that a user in one graph can't be added to another until it's removed from the first
+	@Test
+	public void tiSecondGraphTest() {
+		UserGraph g1 = new UserGraph();
+		UserGraph g2 = new UserGraph();
+		User u = new User("u", 1);
+		g1.addUser(u);
+		try {
+			g2.addUser(u);
+			fail();
+		} catch (IllegalArgumentException ex) {
+		}
+		assertEquals(g2.size(), 0);
+		
+		g1.totalInfection(u, 5);
+		assertEquals(u.getSiteAccessed(), 5);
+		
+		g1.removeUser(u);
+		g2.addUser(u);
+		g2.totalInfection(u, 6);
+		assertEquals(u.getSiteAccessed(), 6);
+	}
+	
+	//testing that only users whose version actually changes are reported
+	@Test
+	public void tiChangeFeedTest() {
+		UserGraph g = new UserGraph();
+		User a = new User("a", 1);
+		User b = new User("b", 10);
+		User c = new User("c", 3);
+		User d = new User("d", 4);
+		
+		g.addUser(a);
+		g.addUser(b);
+		g.addUser(c);
+		g.addUser(d);
+		g.addEdge(a, b);
+		g.addEdge(b, c);
+		
+		java.util.ArrayList<User> changed = new java.util.ArrayList<User>();
+		g.totalInfection(a, 10, u -> {
+			assertEquals(u.getSiteAccessed(), 10);
+			changed.add(u);
+		});
+		assertEquals(changed.size(), 2);
+		assertTrue(changed.contains(a));
+		assertTrue(changed.contains(c));
+		
+		changed.clear();
+		g.totalInfection(c, 10, changed::add);
+		assertEquals(changed.size(), 0);
+		
+		g.limitedInfection(1, 10, changed::add);
+		assertEquals(changed.size(), 1);
+		assertSame(changed.get(0), d);
+	}
 }
@@ -15,6 +15,10 @@ public class User {
 	//set of all user's neighbors 
 	private HashSet<User> neighbors;
 	
+	//once the user is added to a graph, its site version lives in slot of the graph's column instead
+	private SiteVersionColumn versions;
+	private int slot;
+	
 	//object constructor
 	public User(String userID, int sv) {
 		this.userID = userID;
@@ -23,6 +27,11 @@ public class User {
 		neighbors = new HashSet<User>();
 	}
 	
+	//returns the user's ID
+	public String getUserID() {
+		return userID;
+	}
+	
 	//return set of all neighbors
 	public HashSet<User> getNeighbors() {
 		return neighbors;
@@ -36,14 +45,44 @@ public class User {
 		neighbors.add(u);
 	}
 	
+	//remove a neighbor, returns false if u wasn't a neighbor
+	public boolean removeNeighbor(User u) {
+		if (u == null) {
+			throw new NullPointerException();
+		}
+		return neighbors.remove(u);
+	}
+	
 	//returns version of site that user is accessing
 	public int getSiteAccessed() {
-		return siteAccessed;
+		return versions == null ? siteAccessed : versions.get(slot);
 	}
 	
 	//change version of site user is accessing
 	public void access(int v) {
-		siteAccessed = v;
+		if (versions == null) {
+			siteAccessed = v;
+		} else {
+			versions.set(slot, v);
+		}
+	}
+	
+	//returns the column the user's site version lives in, or null if it's kept in the user itself
+	SiteVersionColumn column() {
+		return versions;
+	}
+	
+	//moves the user's site version into slot of column, from wherever it was kept before
+	void attach(SiteVersionColumn column, int slot) {
+		column.set(slot, getSiteAccessed());
+		versions = column;
+		this.slot = slot;
+	}
+	
+	//moves the user's site version back into its own field, once it's no longer in a graph
+	void detach() {
+		siteAccessed = getSiteAccessed();
+		versions = null;
 	}
 	
 	//each user's string representation is its userID
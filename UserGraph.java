@@ -1,5 +1,10 @@
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 public class UserGraph {
 	
@@ -7,28 +12,101 @@ public class UserGraph {
 	 * edge between two users if they share a coach-student relationship. Using an undirected graph
 	 * simplifies the infection process, but we can consider implementing the graph as a directed
 	 * graph if we know that we want to build additional functionality on top of the infection 
-	 * process.
+	 * process. <p>
+	 * 
+	 * Each user gets a dense index when it's added, and the users' site versions are stored in a 
+	 * SiteVersionColumn indexed by it, so that versions can be reset or counted in bulk. Indices stay
+	 * dense when a user is removed: the user with the highest index takes over the removed index.
 	 */
 	
-	HashSet<User> users;
+	//smallest batch of addEdges that's worth splitting across threads
+	private static final int PARALLEL_THRESHOLD = 1 << 13;
+	
+	//dense index of each user, keyed by userID, and the users by dense index
+	private UserIdTable ids;
+	private User[] byIndex;
+	
+	//union-find over dense indices, updated on every addUser and addEdge
+	private ComponentIndex components;
+	
+	//site version of every user by dense index, which the users read and write through
+	SiteVersionColumn versions;
+	
+	//whether a CompactUserGraph reads versions too, so they're copied before a removal moves slots
+	private boolean versionsShared;
+	
+	/* explicit stack or queue of dense indices shared by every traversal, so that the size of a 
+	connected component is bounded by the heap rather than by the depth of the thread stack */
+	private int[] stack;
+	
+	//a second stack for searching from both ends of a removed edge at once
+	private int[] otherStack;
+	
+	/* visited[i] == epoch if user i has been visited by the current traversal. every traversal bumps
+	epoch instead of clearing visited, so repeated infections don't allocate anything */
+	private int[] visited;
+	private int epoch;
+	
+	//number of changes to the connected components, used to tell when an InfectionPlan is stale
+	private long modCount;
+	
+	//receives the timings and counters of infections and addEdges, or null if nobody is listening
+	private InfectionListener listener;
+	
+	//work done by traversals since it was last reported to the listener
+	private long visitedTally;
+	private long scannedTally;
+	private long changedTally;
 	
 	//graph constructor
 	public UserGraph() {
-		users = new HashSet<User>();
+		ids = new UserIdTable();
+		byIndex = new User[16];
+		components = new ComponentIndex();
+		versions = new SiteVersionColumn();
+		stack = new int[16];
+		otherStack = new int[16];
+		visited = new int[16];
+	}
+	
+	//sets the listener that infections and addEdges report to, or turns reporting off if it's null
+	public void setListener(InfectionListener listener) {
+		this.listener = listener;
+		resetTallies();
 	}
 	
 	//returns number of users in the graph
 	public int size() {
-		return users.size();
+		return ids.size();
 	}
 	
 	
-	//add users to the graph
+	/* add users to the graph, a user with the same ID as a different user in the graph isn't allowed,
+	and neither is a user that's in another graph, since its site version lives in that graph's 
+	column */
 	public void addUser(User u) {
 		if (u == null) {
 			throw new NullPointerException();
 		}
-		users.add(u);
+		int i = ids.get(u.getUserID());
+		if (i >= 0) {
+			if (byIndex[i] != u) {
+				throw new IllegalArgumentException();
+			}
+			return;
+		}
+		if (u.column() != null) {
+			throw new IllegalArgumentException();
+		}
+		
+		i = ids.intern(u.getUserID());
+		components.add();
+		modCount++;
+		if (i == byIndex.length) {
+			byIndex = Arrays.copyOf(byIndex, i * 2);
+		}
+		byIndex[i] = u;
+		u.attach(versions, versions.add(u.getSiteAccessed()));
 	}
 	
 	//add an edge between two users in the graph
@@ -36,11 +114,345 @@ public class UserGraph {
 		if (u == null || v == null) {
 			throw new NullPointerException();
 		} 
-		if (!users.contains(u) || !users.contains(v)) {
+		int i = indexOf(u);
+		int j = indexOf(v);
+		if (i < 0 || j < 0) {
 			throw new IllegalArgumentException();
 		}
 		u.addNeighbor(v);
 		v.addNeighbor(u);
+		if (components.union(i, j)) {
+			modCount++;
+		}
+	}
+	
+	/** Removes the edge between u and v. If that may split their CC, the two sides are searched at 
+	 *  the same time, one user at a time from whichever side has seen fewer users, until either the 
+	 *  searches meet or one of them runs out. A search that runs out has found a whole CC, which is 
+	 *  split off in the union-find, so the work is proportional to the smaller side rather than the 
+	 *  whole graph.
+	 *  @param u One end of the edge
+	 *  @param v The other end of the edge
+	 *  @return false if there was no edge between u and v
+	 */
+	public boolean removeEdge(User u, User v) {
+		if (u == null || v == null) {
+			throw new NullPointerException();
+		}
+		int i = indexOf(u);
+		int j = indexOf(v);
+		if (i < 0 || j < 0) {
+			throw new IllegalArgumentException();
+		}
+		if (!u.removeNeighbor(v)) {
+			return false;
+		}
+		v.removeNeighbor(u);
+		if (i != j) {
+			separate(i, j);
+		}
+		return true;
+	}
+	
+	/** Removes u and all of its edges from the graph. u keeps its current site version, and the user
+	 *  with the highest index is given u's index. The rest of u's CC may fall apart into one CC per 
+	 *  neighbor at most; each neighbor is checked against the one whose CC is still in the old set, 
+	 *  searching as in removeEdge.
+	 *  @param u The user to remove
+	 *  @return false if u wasn't in the graph
+	 */
+	public boolean removeUser(User u) {
+		int i = indexOf(u);
+		if (i < 0) {
+			return false;
+		}
+		
+		User[] neighbors = u.getNeighbors().toArray(new User[0]);
+		int[] nb = new int[neighbors.length];
+		int d = 0;
+		for (User v : neighbors) {
+			u.removeNeighbor(v);
+			v.removeNeighbor(u);
+			if (v != u) {
+				nb[d++] = ids.get(v.getUserID());
+			}
+		}
+		
+		//split u off on its own, then split the rest into the CCs that are really left
+		if (d > 0) {
+			components.split(new int[] {i}, 0, 1, nb[0]);
+			int rest = nb[0];
+			for (int k = 1; k < d; k++) {
+				if (components.find(nb[k]) == components.find(rest) && separate(rest, nb[k]) == rest) {
+					rest = nb[k];
+				}
+			}
+		}
+		
+		//move the last user into u's index
+		if (versionsShared) {
+			versions = versions.copy();
+			for (int x = 0; x < ids.size(); x++) {
+				byIndex[x].attach(versions, x);
+			}
+			versionsShared = false;
+		}
+		int last = ids.size() - 1;
+		u.detach();
+		if (i != last) {
+			byIndex[last].attach(versions, i);
+		}
+		versions.removeLast();
+		components.remove(i);
+		ids.remove(i);
+		byIndex[i] = byIndex[last];
+		byIndex[last] = null;
+		modCount++;
+		return true;
+	}
+	
+	/* helper function that checks whether users a and b, which were in the same CC, still are. if not,
+	the CC of whichever one was searched in full is split off in the union-find and that user is 
+	returned. returns -1 if they're still connected */
+	private int separate(int a, int b) {
+		int stampA = nextEpoch();
+		int stampB = nextEpoch();
+		visited[a] = stampA;
+		visited[b] = stampB;
+		stack[0] = a;
+		otherStack[0] = b;
+		
+		//each side keeps every user it has seen in its array, and expands them in order from head
+		int headA = 0;
+		int tailA = 1;
+		int headB = 0;
+		int tailB = 1;
+		while (headA < tailA && headB < tailB) {
+			boolean sideA = tailA <= tailB;
+			int[] seen = sideA ? stack : otherStack;
+			int own = sideA ? stampA : stampB;
+			int other = sideA ? stampB : stampA;
+			int w = sideA ? seen[headA++] : seen[headB++];
+			int tail = sideA ? tailA : tailB;
+			for (User v : byIndex[w].getNeighbors()) {
+				int x = ids.get(v.getUserID());
+				if (visited[x] == other) {
+					return -1;
+				}
+				if (visited[x] != own) {
+					visited[x] = own;
+					seen[tail++] = x;
+				}
+			}
+			if (sideA) {
+				tailA = tail;
+			} else {
+				tailB = tail;
+			}
+		}
+		
+		//the side that ran out holds a whole CC
+		modCount++;
+		if (headA == tailA) {
+			components.split(stack, 0, tailA, b);
+			return a;
+		}
+		components.split(otherStack, 0, tailB, a);
+		return b;
+	}
+	
+	/** Adds a batch of edges between users given by dense index, where edge k joins users from[k] and
+	 *  to[k]. Every index is checked before anything is added, so an invalid batch leaves the graph 
+	 *  unchanged. The edges are then packed into longs, sorted and deduplicated in parallel, so 
+	 *  repeated pairs (in either direction) cost nothing after the sort. Both directions of each 
+	 *  distinct pair are then sorted by source, and each run of equal sources is added to that user's
+	 *  neighbors by one thread, so runs are added in parallel. The union-find is updated once per 
+	 *  distinct pair. Nothing is sized by the number of users in the graph, so the cost of a batch 
+	 *  only depends on the number of edges in it.
+	 *  @param from The index of one endpoint of each edge
+	 *  @param to   The index of the other endpoint of each edge
+	 */
+	public void addEdges(int[] from, int[] to) {
+		if (from == null || to == null) {
+			throw new NullPointerException();
+		}
+		if (from.length != to.length) {
+			throw new IllegalArgumentException();
+		}
+		InfectionListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
+		int n = ids.size();
+		int m = from.length;
+		if (batch(m).anyMatch(k -> from[k] < 0 || from[k] >= n || to[k] < 0 || to[k] >= n)) {
+			throw new IllegalArgumentException();
+		}
+		
+		//pack each edge as (lower index, higher index) so both directions of a pair sort together
+		long[] pairs = new long[m];
+		batch(m).forEach(k -> {
+			int lo = Math.min(from[k], to[k]);
+			int hi = Math.max(from[k], to[k]);
+			pairs[k] = ((long) lo << 32) | hi;
+		});
+		Arrays.parallelSort(pairs);
+		int unique = 0;
+		for (int k = 0; k < m; k++) {
+			if (unique == 0 || pairs[k] != pairs[unique - 1]) {
+				pairs[unique++] = pairs[k];
+			}
+		}
+		
+		//both directions of each pair as (source, target), sorted so each source's targets are a run
+		long[] directed = new long[2 * unique];
+		int numDirected = 0;
+		for (int k = 0; k < unique; k++) {
+			long lo = pairs[k] >>> 32;
+			long hi = pairs[k] & 0xFFFFFFFFL;
+			directed[numDirected++] = pairs[k];
+			if (hi != lo) {
+				directed[numDirected++] = (hi << 32) | lo;
+			}
+		}
+		Arrays.parallelSort(directed, 0, numDirected);
+		
+		//runStart[r] is where the run of source r starts, and runStart[numRuns] is the end
+		int[] runStart = new int[numDirected + 1];
+		int numRuns = 0;
+		for (int k = 0; k < numDirected; k++) {
+			if (k == 0 || directed[k] >>> 32 != directed[k - 1] >>> 32) {
+				runStart[numRuns++] = k;
+			}
+		}
+		runStart[numRuns] = numDirected;
+		
+		//each user's neighbor set is only touched by the thread handling its run
+		batch(numRuns).forEach(r -> {
+			User u = byIndex[(int) (directed[runStart[r]] >>> 32)];
+			for (int e = runStart[r]; e < runStart[r + 1]; e++) {
+				u.addNeighbor(byIndex[(int) directed[e]]);
+			}
+		});
+		for (int k = 0; k < unique; k++) {
+			if (components.union((int) (pairs[k] >>> 32), (int) pairs[k])) {
+				modCount++;
+			}
+		}
+		if (l != null) {
+			l.phase(InfectionListener.Phase.ADD_EDGES, System.nanoTime() - start);
+		}
+	}
+	
+	//helper function that returns 0...count-1 as a stream, in parallel if count is large enough to pay
+	private static IntStream batch(int count) {
+		IntStream s = IntStream.range(0, count);
+		return count >= PARALLEL_THRESHOLD ? s.parallel() : s;
+	}
+	
+	//returns the dense index of u, or -1 if u isn't in the graph
+	public int indexOf(User u) {
+		if (u == null) {
+			throw new NullPointerException();
+		}
+		int i = ids.get(u.getUserID());
+		return i >= 0 && byIndex[i] == u ? i : -1;
+	}
+	
+	//returns the dense index of the user with the given ID, or -1 if there's no such user
+	public int indexOf(String userID) {
+		return ids.get(userID);
+	}
+	
+	//returns the user with dense index i
+	public User getUser(int i) {
+		checkIndex(i);
+		return byIndex[i];
+	}
+	
+	//returns the user with the given ID, or null if there's no such user
+	public User getUser(String userID) {
+		int i = ids.get(userID);
+		return i < 0 ? null : byIndex[i];
+	}
+	
+	//throws an IllegalArgumentException if i isn't the index of a user in the graph
+	private void checkIndex(int i) {
+		if (i < 0 || i >= ids.size()) {
+			throw new IllegalArgumentException();
+		}
+	}
+	
+	//returns the site version of the user with dense index i
+	public int getSiteAccessed(int i) {
+		checkIndex(i);
+		return versions.get(i);
+	}
+	
+	//moves every user in the graph to site version sv
+	public void resetVersions(int sv) {
+		versions.fill(sv);
+	}
+	
+	//returns number of users on site version sv
+	public int countVersion(int sv) {
+		return versions.count(sv);
+	}
+	
+	//returns the number of users on each site version that at least one user is on
+	public HashMap<Integer, Integer> versionCounts() {
+		return versions.counts();
+	}
+	
+	//returns the site version column, which a CompactUserGraph of this graph reads and writes too
+	SiteVersionColumn shareVersions() {
+		versionsShared = true;
+		return versions;
+	}
+	
+	//returns a number that changes whenever a user is added or removed, or the CCs change
+	long modCount() {
+		return modCount;
+	}
+	
+	/** Plans limited infections of up to maxN users. The plan runs the subset-sum once over the 
+	 *  current CCs, and can then answer limited_infection and perfect_limited_infection for any 
+	 *  n <= maxN without redoing it. The plan becomes invalid once the CCs change.
+	 *  @param maxN The largest n the plan will be asked about
+	 *  @return the plan
+	 */
+	public InfectionPlan planLimitedInfection(int maxN) {
+		if (maxN < 0) {
+			throw new IllegalArgumentException();
+		}
+		InfectionListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
+		int numCC = components.numComponents();
+		User[] ccUser = new User[numCC];
+		int[] ccSize = new int[numCC];
+		findSize(ccUser, ccSize);
+		start = endPhase(l, InfectionListener.Phase.FIND_COMPONENTS, start);
+		InfectionPlan plan = new InfectionPlan(this, ccUser, ccSize, maxN, l);
+		endPhase(l, InfectionListener.Phase.SUBSET_SUM, start);
+		return plan;
+	}
+	
+	//returns number of connected components in the graph
+	public int numComponents() {
+		return components.numComponents();
+	}
+	
+	//returns number of users in u's connected component
+	public int componentSize(User u) {
+		int i = indexOf(u);
+		if (i < 0) {
+			throw new IllegalArgumentException();
+		}
+		return components.componentSize(i);
+	}
+	
+	//returns number of users in the connected component of the user with dense index i
+	public int componentSize(int i) {
+		checkIndex(i);
+		return components.componentSize(i);
 	}
 	
 	/** total_infection: 
@@ -49,29 +461,146 @@ public class UserGraph {
 	 *  @param sv The site version that the users will be infected with 
 	 */
 	public void totalInfection(User u, int sv) {
-		if (u == null) {
-			throw new NullPointerException();
-		}
-		if (!users.contains(u)) {
+		totalInfection(u, sv, null);
+	}
+	
+	/** Same as totalInfection(u, sv), but every user whose site version actually changes is passed to
+	 *  changed, so that downstream updates are proportional to the real changes.
+	 *  @param u       The user from which from the infection will start
+	 *  @param sv      The site version that the users will be infected with 
+	 *  @param changed Receives each user whose version changed, or null if nobody needs to know
+	 */
+	public void totalInfection(User u, int sv, Consumer<User> changed) {
+		int i = indexOf(u);
+		if (i < 0) {
 			throw new IllegalArgumentException();
 		}
-		HashSet<User> visited = new HashSet<User>(); //vertices that have already been infected
+		infectFrom(i, sv, changed);
+	}
+	
+	/** Same as totalInfection(u, sv), for the user with dense index i.
+	 *  @param i  The index of the user from which from the infection will start
+	 *  @param sv The site version that the users will be infected with 
+	 */
+	public void totalInfection(int i, int sv) {
+		checkIndex(i);
+		infectFrom(i, sv, null);
+	}
+	
+	//helper function that infects i's CC as a single timed INFECT phase
+	private void infectFrom(int i, int sv, Consumer<User> changed) {
+		InfectionListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
+		traverse(i, nextEpoch(), sv, changed);
+		endInfect(l, start);
+	}
+	
+	/* helper function that infects the CCs of ccUser[x] for every x with inSol[x]. the CCs are 
+	disjoint, so they can share one stamp */
+	private void infectChosen(User[] ccUser, boolean[] inSol, int sv, Consumer<User> changed) {
+		int stamp = nextEpoch();
+		for (int x = 0; x < ccUser.length; x++) {
+			if (inSol[x]) {
+				traverse(ids.get(ccUser[x].getUserID()), stamp, sv, changed);
+			}
+		}
+	}
+	
+	//infects the CCs of ccUsers as a single INFECT phase, for an InfectionPlan
+	void infectComponents(User[] ccUsers, int sv) {
+		InfectionListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
+		int stamp = nextEpoch();
+		for (User u : ccUsers) {
+			traverse(ids.get(u.getUserID()), stamp, sv, null);
+		}
+		endInfect(l, start);
+	}
+	
+	//helper function that reports phase, which began at start, to l unless it's null, returns now
+	private static long endPhase(InfectionListener l, InfectionListener.Phase phase, long start) {
+		if (l == null) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		l.phase(phase, now - start);
+		return now;
+	}
+	
+	/* helper function that reports the INFECT phase, which began at start, and the traversals' work
+	to l unless it's null */
+	private void endInfect(InfectionListener l, long start) {
+		if (l != null) {
+			endPhase(l, InfectionListener.Phase.INFECT, start);
+			l.count(InfectionListener.Counter.USERS_VISITED, visitedTally);
+			l.count(InfectionListener.Counter.EDGES_SCANNED, scannedTally);
+			l.count(InfectionListener.Counter.USERS_CHANGED, changedTally);
+			resetTallies();
+		}
+	}
+	
+	//helper function that starts counting the traversals' work again from 0
+	private void resetTallies() {
+		visitedTally = 0;
+		scannedTally = 0;
+		changedTally = 0;
+	}
+	
+	//starts a new traversal, returns the stamp that marks users as visited by it
+	private int nextEpoch() {
+		//users are marked when pushed, so the stack never holds more than size() entries
+		if (visited.length < ids.size()) {
+			visited = Arrays.copyOf(visited, Math.max(ids.size(), visited.length * 2));
+			stack = new int[visited.length];
+			otherStack = new int[visited.length];
+		}
 		
-		dfsInfect(u, visited, sv);
+		//once every stamp has been used, forget all of them and start over
+		if (++epoch == 0) {
+			Arrays.fill(visited, 0);
+			epoch = 1;
+		}
+		return epoch;
 	}
 	
-	//helper function that infects users via dfs
-	private void dfsInfect(User u, HashSet<User> visited, int sv) {
-		//infect u
-		u.access(sv);
-		visited.add(u);
+	/* helper function that infects every user in i's CC that isn't stamped with stamp, without 
+	recursing, passing the users whose version changed to changed unless it's null. returns the number 
+	of users visited */
+	private int traverse(int i, int stamp, int sv, Consumer<User> changed) {
+		visited[i] = stamp;
+		stack[0] = i;
+		int size = 1;
+		long scanned = 0;
 		
-		//recursively call on all of u's unvisited neighbors
-		for (User v : u.getNeighbors()){
-			if (!visited.contains(v)) {
-				dfsInfect(v, visited, sv);
+		/* a BFS that leaves the whole CC in stack[0...size-1], marking users when queued so each is 
+		queued once */
+		for (int head = 0; head < size; head++) {
+			int w = stack[head];
+			scanned += byIndex[w].getNeighbors().size();
+			for (User v : byIndex[w].getNeighbors()) {
+				int j = ids.get(v.getUserID());
+				if (visited[j] != stamp) {
+					visited[j] = stamp;
+					stack[size++] = j;
+				}
 			}
 		}
+		
+		//set the CC's versions in one pass, after which the users that changed are at the front
+		int numChanged = versions.setAll(stack, 0, size, sv);
+		if (changed != null) {
+			for (int k = 0; k < numChanged; k++) {
+				changed.accept(byIndex[stack[k]]);
+			}
+		}
+		
+		//work is only tallied for a listener
+		if (listener != null) {
+			visitedTally += size;
+			scannedTally += scanned;
+			changedTally += numChanged;
+		}
+		return size;
 	}
 	
 	/** limited_infection:
@@ -81,119 +610,219 @@ public class UserGraph {
 	 *  and students access different version of the site, while guaranteeing that the algorithm 
 	 *  doesn't accidentally infect more users than was originally intended. <p>
 	 *  
-	 *  This algorithm assumes that limited_infection will be called relatively infrequently, so it 
-	 *  runs a DFS in order to find the size of each connected component in the graph. If you expect
-	 *  limited_infection to be called frequently, with edge-inserts in between each call, it may
-	 *  be beneficial to store the size of each connected component in something like a union-find 
-	 *  structure.
+	 *  Since limited_infection may be called frequently, with edge-inserts in between each call, the
+	 *  size of each connected component is kept up to date in a union-find structure as users and 
+	 *  edges are added, rather than found with a DFS of the whole graph on every call.
 	 *  
 	 *  @param n  The maximum number of users that will be infected
 	 *  @param sv The site version that the users will be infected with
 	 */
 	public void limitedInfection(int n, int sv) {
+		infectSubset(n, sv, false, null);
+	}
+	
+	/** Same as limitedInfection(n, sv), but every user whose site version actually changes is passed 
+	 *  to changed.
+	 *  @param n       The maximum number of users that will be infected
+	 *  @param sv      The site version that the users will be infected with
+	 *  @param changed Receives each user whose version changed, or null if nobody needs to know
+	 */
+	public void limitedInfection(int n, int sv, Consumer<User> changed) {
+		infectSubset(n, sv, false, changed);
+	}
+	
+	/** Same as limitedInfection(n, sv), but for when n and the number of CCs are too large to wait
+	 *  for the exact answer. The subset-sum adds the CCs largest first until budgetMillis runs out, 
+	 *  then fills the rest of n greedily with the CCs it didn't get to, largest first. 
+	 *  
+	 *  Every CC left out of the subset-sum is smaller than the ones in it, so the best answer can be
+	 *  no more than what the subset-sum found plus the size of all CCs it left out. The returned 
+	 *  result reports this bound along with the number of users actually infected.
+	 *  
+	 *  @param n            The maximum number of users that will be infected
+	 *  @param sv           The site version that the users will be infected with
+	 *  @param budgetMillis How long the search for the best subset of CCs may take
+	 *  @return the number of users infected, and how far it can be from the exact answer
+	 */
+	public ApproximateInfection approximateLimitedInfection(int n, int sv, long budgetMillis) {
+		if (n < 0 || budgetMillis < 0) {
+			throw new IllegalArgumentException();
+		}
+		long deadline = System.nanoTime() + budgetMillis * 1000000L;
+		InfectionListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
+		
+		int numCC = components.numComponents();
+		User[] ccUser = new User[numCC];
+		int[] ccSize = new int[numCC];
+		findSize(ccUser, ccSize);
+		start = endPhase(l, InfectionListener.Phase.FIND_COMPONENTS, start);
+		
+		boolean[] inSol = new boolean[numCC];
+		int[] found = SubsetSum.findSubsetWithin(ccSize, numCC, Math.min(n, ids.size()), inSol, deadline,
+				l);
+		start = endPhase(l, InfectionListener.Phase.SUBSET_SUM, start);
+		
+		infectChosen(ccUser, inSol, sv, null);
+		endInfect(l, start);
+		return new ApproximateInfection(n, found[0], found[1]);
+	}
+	
+	//helper function that infects the best subset of CCs with at most n users in total, or exactly 
+	//n users if exact is true, passing the users whose version changed to changed
+	private void infectSubset(int n, int sv, boolean exact, Consumer<User> changed) {
 		if (n < 0) {
 			throw new IllegalArgumentException();
 		}
 		
-		if (users.size() == 0) {
+		if (ids.size() == 0) {
 			return;
 		}
 		
+		//phases are only timed when there's a listener
+		InfectionListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
+		
 		//arrays storing the size and a user in each connected component
-		User[] ccUser = new User[users.size() + 1];
-		int[] ccSize = new int[users.size() + 1];
+		int numCC = components.numComponents();
+		User[] ccUser = new User[numCC];
+		int[] ccSize = new int[numCC];
 		
 		//find the size of each connected component
-		int numCC = findSize(ccUser, ccSize);
+		findSize(ccUser, ccSize);
+		start = endPhase(l, InfectionListener.Phase.FIND_COMPONENTS, start);
 		
-		/* maxSum[x][m] stores the max number of users given completely infected CCs from 1...x
-		that is <= than m*/
-		int[][] maxSum = new int[numCC + 1][n + 1];
+		/* inSol[x] stores whether CC x is in the subset with the max number of users that is <= n */
+		boolean[] inSol = new boolean[numCC];
 		
-		/* inSol[x][m] stores whether CC x is in the solution indicated by maxSum[x][m] */
-		boolean[][] inSol = new boolean[numCC + 1][n + 1];
+		//calculate optimal CCs, there's no need to look at sums above the number of users in the graph
+		int maxSum = SubsetSum.findSubsetGrouped(ccSize, numCC, Math.min(n, ids.size()), inSol, false, l);
+		start = endPhase(l, InfectionListener.Phase.SUBSET_SUM, start);
 		
-		//calculate optimal CCs 
-		dpFindSubset(numCC, n, ccSize, maxSum, inSol);
-		
-		//infect all connected components that exist in the solution for maxSum[numCC-1][n]
-		int m = n; //initial max sum value
-		for (int x = numCC; x > 0; x--) {
-			if (inSol[x][m]) {
-				totalInfection(ccUser[x], sv);
-				m = m - ccSize[x];
-			}
+		//if the optimal solution has to be exactly n and isn't, throw exception
+		if (exact && maxSum != n) {
+			throw new UnsupportedOperationException();
 		}
+		
+		//else, infect all connected components that exist in the solution
+		infectChosen(ccUser, inSol, sv, changed);
+		endInfect(l, start);
 	}
 	
-	//helper function that finds out whether each CC is included in an optimal solution 
-	private void dpFindSubset(int numCC, int n, int[] ccSize, int[][] maxSum, boolean[][] inSol) {
+	/** Rolls out k experiments at once, experiment i on site version versions[i] with at most 
+	 *  targets[i] users, giving each CC to at most one experiment so that no experiment overwrites 
+	 *  another's users. Unlike calling limitedInfection k times, the CCs are only read out of the 
+	 *  union-find once. 
+	 *  
+	 *  Experiments are filled largest target first, each with the best subset of the CCs that are 
+	 *  still unassigned, which is the usual greedy heuristic for multiple subset-sum. Each subset is
+	 *  built from the largest CCs that fit, so the small CCs are left to fill the smaller targets. 
+	 *  A single subset-sum pass up to the sum of the targets gives the bounds reported with the 
+	 *  result.
+	 *  
+	 *  @param targets  targets[i] is the maximum number of users for experiment i
+	 *  @param versions versions[i] is the site version for experiment i
+	 *  @return what each experiment was given, and bounds on what it could have been given
+	 */
+	public CohortAssignment assignCohorts(int[] targets, int[] versions) {
+		if (targets == null || versions == null) {
+			throw new NullPointerException();
+		}
+		int k = targets.length;
+		if (versions.length != k) {
+			throw new IllegalArgumentException();
+		}
+		long targetSum = 0;
+		for (int t : targets) {
+			if (t < 0) {
+				throw new IllegalArgumentException();
+			}
+			targetSum += t;
+		}
+		InfectionListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
 		
-		//fill in above arrays depending on whether its more optimal to include each CC or not
-		for (int x = 0; x < numCC; x++) {
-			for (int m = 0; m <= n; m++) {
-				
-				//base cases
-				if (x == 0 || m == 0) {
-					maxSum[x][m] = 0;
-					inSol[x][m] = false;
-				} 
-				
-				else {
-					//case where we include x
-					int include;
-					if (ccSize[x] <= m) {
-						include = ccSize[x] + maxSum[x - 1][m - ccSize[x]];
-					} else {
-						include = -1;
-					}
-
-					//case where we don't include x
-					int exclude = maxSum[x - 1][m];
-
-					//record the larger of the two cases
-					if (include < exclude) {
-						maxSum[x][m] = exclude;
-						inSol[x][m] = false;
-					} else {
-						maxSum[x][m] = include;
-						inSol[x][m] = true;
-					}
+		int numCC = components.numComponents();
+		User[] ccUser = new User[numCC];
+		int[] ccSize = new int[numCC];
+		findSize(ccUser, ccSize);
+		start = endPhase(l, InfectionListener.Phase.FIND_COMPONENTS, start);
+		
+		//every subset-sum pass reports to totals, so each counter is reported once for all of them
+		CounterTotals totals = l == null ? null : new CounterTotals();
+		
+		//best[m] is the largest sum <= m that any subset of the CCs reaches
+		int maxSum = (int) Math.min(targetSum, ids.size());
+		SubsetSum.Bundles bundles = new SubsetSum.Bundles(ccSize, numCC, maxSum);
+		int[] first = SubsetSum.reachTable(bundles.size, bundles.numBundles, maxSum, false, totals);
+		int[] best = new int[maxSum + 1];
+		for (int m = 1; m <= maxSum; m++) {
+			best[m] = first[m] != 0 ? m : best[m - 1];
+		}
+		int[] upperBounds = new int[k];
+		for (int i = 0; i < k; i++) {
+			upperBounds[i] = best[Math.min(targets[i], maxSum)];
+		}
+		
+		//experiments in decreasing order of target
+		long[] order = new long[k];
+		for (int i = 0; i < k; i++) {
+			order[i] = ((long) targets[i] << 32) | i;
+		}
+		Arrays.sort(order);
+		
+		//remaining[x] is the size of CC x, or 0 once it has been given to an experiment
+		int[] remaining = ccSize.clone();
+		int[] achieved = new int[k];
+		User[][] chosen = new User[k][];
+		for (int r = k - 1; r >= 0; r--) {
+			int i = (int) order[r];
+			boolean[] inSol = new boolean[numCC];
+			achieved[i] = SubsetSum.findSubsetGrouped(remaining, numCC, Math.min(targets[i], ids.size()), 
+					inSol, true, totals);
+			
+			int numChosen = 0;
+			for (int x = 0; x < numCC; x++) {
+				if (inSol[x]) {
+					numChosen++;
+				}
+			}
+			chosen[i] = new User[numChosen];
+			int c = 0;
+			for (int x = 0; x < numCC; x++) {
+				if (inSol[x]) {
+					chosen[i][c++] = ccUser[x];
+					remaining[x] = 0;
 				}
 			}
 		}
 		
-	}
-	
-	//helper function that finds the size of each connected component, returns # of CCs
-	private int findSize(User[] ccUser, int[] ccSize) {
-		HashSet<User> visited = new HashSet<User>(); //vertices that have already been visited
+		if (l != null) {
+			totals.reportTo(l);
+			start = endPhase(l, InfectionListener.Phase.SUBSET_SUM, start);
+		}
 		
-		//dfs to find size on all other connected components
-		int i = 1;
-		for (User u : users) {
-			if (!visited.contains(u)) {
-				ccUser[i] = u;
-				ccSize[i++] = dfsFindSize(u, visited);
+		//the CCs are disjoint, so the experiments can be rolled out in any order with one stamp
+		int stamp = nextEpoch();
+		for (int i = 0; i < k; i++) {
+			for (User u : chosen[i]) {
+				traverse(ids.get(u.getUserID()), stamp, versions[i], null);
 			}
 		}
+		endInfect(l, start);
 		
-		return i;
+		return new CohortAssignment(targets.clone(), versions.clone(), achieved, upperBounds, 
+				best[maxSum], chosen);
 	}
 	
-	private int dfsFindSize(User u, HashSet<User> visited) {
-		//mark u as visited
-		visited.add(u);
-		
-		//recursively find the number of users in u
-		int size = 1;
-		for (User v : u.getNeighbors()) {
-			if (!visited.contains(v)) {
-				size = size + dfsFindSize(v, visited);
-			}
+	//helper function that reads the size and a user of each connected component out of the 
+	//union-find
+	private void findSize(User[] ccUser, int[] ccSize) {
+		for (int k = 0; k < components.numComponents(); k++) {
+			int member = components.member(k);
+			ccUser[k] = byIndex[member];
+			ccSize[k] = components.componentSize(member);
 		}
-		
-		return size;
 	}
 	
 	/** OPTIONAL CONTENT: perfect_limited_infection:
@@ -204,42 +833,347 @@ public class UserGraph {
 	 *  @param sv The site version that the users will be infected with
 	 */
 	public void perfectLimitedInfection(int n, int sv) {
+		infectSubset(n, sv, true, null);
+	}
+	
+	/** Same as perfectLimitedInfection(n, sv), but every user whose site version actually changes is
+	 *  passed to changed. Nothing is passed to changed if the exception is thrown.
+	 *  @param n       The number of users that will be infected
+	 *  @param sv      The site version that the users will be infected with
+	 *  @param changed Receives each user whose version changed, or null if nobody needs to know
+	 */
+	public void perfectLimitedInfection(int n, int sv, Consumer<User> changed) {
+		infectSubset(n, sv, true, changed);
+	}
+	
+	/** Same as perfectLimitedInfection(n, sv), but rather than throwing when no subset of whole CCs
+	 *  adds up to n, the users still missing are carved out of a CC that was left out. The rest of 
+	 *  that CC keeps its version, so the coach/student pairs across the edge of the carved region end
+	 *  up on different versions, and the region is grown to keep them few. <p>
+	 *  
+	 *  The subset-sum finds the best sum <= n of whole CCs as usual. Every CC left out of it is 
+	 *  larger than the gap to n, or adding it would have found a better sum, so the smallest of them
+	 *  is carved. The region is grown from a user at the far end of a BFS of that CC, always adding 
+	 *  the user on its boundary with the most neighbors already inside relative to its neighbors 
+	 *  outside. The boundary is kept in buckets keyed by that difference, so carving takes time 
+	 *  linear in the size of the CC plus its edges.
+	 *  
+	 *  @param n  The number of users that will be infected
+	 *  @param sv The site version that the users will be infected with
+	 *  @return the number of coach/student pairs split between the carved region and the rest of 
+	 *          its CC
+	 */
+	public int exactInfection(int n, int sv) {
 		if (n < 0) {
 			throw new IllegalArgumentException();
 		}
+		if (n > ids.size()) {
+			throw new UnsupportedOperationException();
+		}
+		if (n == 0) {
+			return 0;
+		}
 		
-		if (users.size() == 0) {
-			return;
+		InfectionListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
+		
+		int numCC = components.numComponents();
+		User[] ccUser = new User[numCC];
+		int[] ccSize = new int[numCC];
+		findSize(ccUser, ccSize);
+		start = endPhase(l, InfectionListener.Phase.FIND_COMPONENTS, start);
+		boolean[] inSol = new boolean[numCC];
+		int missing = n - SubsetSum.findSubsetGrouped(ccSize, numCC, n, inSol, false, l);
+		start = endPhase(l, InfectionListener.Phase.SUBSET_SUM, start);
+		
+		//n <= size(), so if any users are missing some CC was left out
+		int carveFrom = -1;
+		if (missing > 0) {
+			for (int x = 0; x < numCC; x++) {
+				if (!inSol[x] && (carveFrom < 0 || ccSize[x] < ccSize[carveFrom])) {
+					carveFrom = x;
+				}
+			}
 		}
 		
-		//arrays storing the size and a user in each connected component
-		User[] ccUser = new User[users.size() + 1];
-		int[] ccSize = new int[users.size() + 1];
+		//the carved region is part of the INFECT phase
+		infectChosen(ccUser, inSol, sv, null);
+		int cut = missing == 0 ? 0 : carve(ids.get(ccUser[carveFrom].getUserID()), missing, sv);
+		endInfect(l, start);
+		return cut;
+	}
+	
+	/* helper function that infects a connected region of exactly r users in i's CC, which must have 
+	more than r users, and returns the number of edges leaving the region */
+	private int carve(int i, int r, int sv) {
+		//a BFS from i, whose last user is on the far edge of the CC, where regions have short borders
+		int stamp = nextEpoch();
+		visited[i] = stamp;
+		stack[0] = i;
+		int tail = 1;
+		int seed = i;
+		int maxDegree = 0;
+		long numEdges = 0;
+		for (int head = 0; head < tail; head++) {
+			seed = stack[head];
+			int degree = byIndex[seed].getNeighbors().size();
+			maxDegree = Math.max(maxDegree, degree);
+			numEdges += degree;
+			for (User v : byIndex[seed].getNeighbors()) {
+				int j = ids.get(v.getUserID());
+				if (visited[j] != stamp) {
+					visited[j] = stamp;
+					stack[tail++] = j;
+				}
+			}
+		}
 		
-		//find the size of each connected component
-		int numCC = findSize(ccUser, ccSize);
+		/* a user on the boundary with d neighbors, k of them in the region, would add d - 2k edges 
+		to the border, so it's kept in bucket d - 2k + maxDegree. buckets are linked lists of 
+		entries, and a user gets a new entry each time k goes up, so there are at most one entry per
+		edge plus one for the seed. entries whose key has since changed are skipped when popped */
+		int inRegion = nextEpoch();
+		int onBoundary = nextEpoch();
+		int[] inside = otherStack;
+		int[] bucket = new int[2 * maxDegree + 1];
+		Arrays.fill(bucket, -1);
+		int[] entryUser = new int[(int) Math.min(Integer.MAX_VALUE - 8, numEdges + 1)];
+		int[] entryNext = new int[entryUser.length];
+		int numEntries = 0;
 		
-		/* maxSum[x][m] stores the max number of users given completely infected CCs from 1...x
-		that is <= than m*/
-		int[][] maxSum = new int[numCC + 1][n + 1];
+		visited[seed] = onBoundary;
+		inside[seed] = 0;
+		int min = byIndex[seed].getNeighbors().size() + maxDegree;
+		entryUser[0] = seed;
+		entryNext[0] = -1;
+		bucket[min] = numEntries++;
 		
-		/* inSol[x][m] stores whether CC x is in the solution indicated by maxSum[x][m] */
-		boolean[][] inSol = new boolean[numCC + 1][n + 1];
+		//the region's users go at the front of stack as they're added
+		int size = 0;
+		while (size < r) {
+			while (bucket[min] < 0) {
+				min++;
+			}
+			int e = bucket[min];
+			bucket[min] = entryNext[e];
+			int w = entryUser[e];
+			if (visited[w] == inRegion 
+					|| byIndex[w].getNeighbors().size() - 2 * inside[w] + maxDegree != min) {
+				continue;
+			}
+			
+			visited[w] = inRegion;
+			stack[size++] = w;
+			for (User v : byIndex[w].getNeighbors()) {
+				int j = ids.get(v.getUserID());
+				if (visited[j] == inRegion) {
+					continue;
+				}
+				if (visited[j] != onBoundary) {
+					visited[j] = onBoundary;
+					inside[j] = 0;
+				}
+				inside[j]++;
+				int key = v.getNeighbors().size() - 2 * inside[j] + maxDegree;
+				entryUser[numEntries] = j;
+				entryNext[numEntries] = bucket[key];
+				bucket[key] = numEntries++;
+				min = Math.min(min, key);
+			}
+		}
 		
-		//calculate optimal CCs 
-		dpFindSubset(numCC, n, ccSize, maxSum, inSol);
+		int numChanged = versions.setAll(stack, 0, size, sv);
+		if (listener != null) {
+			visitedTally += tail;
+			scannedTally += numEdges;
+			changedTally += numChanged;
+		}
 		
-		//if the optimal solution isn't exactly n, throw exception
-		if (maxSum[numCC-1][n] != n) {
+		//count the edges leaving the region
+		int cut = 0;
+		for (int p = 0; p < size; p++) {
+			for (User v : byIndex[stack[p]].getNeighbors()) {
+				if (visited[ids.get(v.getUserID())] != inRegion) {
+					cut++;
+				}
+			}
+		}
+		return cut;
+	}
+	
+	/** Same as totalInfection(u, sv), but run on executor, returning at once with a task that can be 
+	 *  cancelled while u's CC is being walked and reports the users walked so far. The graph must not
+	 *  be used by anything else until the task is done.
+	 *  @param u        The user from which from the infection will start
+	 *  @param sv       The site version that the users will be infected with 
+	 *  @param executor Runs the infection
+	 *  @return the running infection, which completes with the number of users infected
+	 */
+	public InfectionTask totalInfectionAsync(User u, int sv, Executor executor) {
+		int i = indexOf(u);
+		if (i < 0) {
+			throw new IllegalArgumentException();
+		}
+		return runAsync(sv, executor, task -> {
+			int[] members = new int[components.componentSize(i)];
+			collect(i, nextEpoch(), members, 0, task);
+			return members;
+		});
+	}
+	
+	/** Same as limitedInfection(n, sv), but run on executor like totalInfectionAsync. The task can 
+	 *  also be cancelled during the subset-sum, and reports its rows.
+	 *  @param n        The maximum number of users that will be infected
+	 *  @param sv       The site version that the users will be infected with
+	 *  @param executor Runs the infection
+	 *  @return the running infection, which completes with the number of users infected
+	 */
+	public InfectionTask limitedInfectionAsync(int n, int sv, Executor executor) {
+		if (n < 0) {
+			throw new IllegalArgumentException();
+		}
+		return runAsync(sv, executor, task -> planSubset(n, false, task));
+	}
+	
+	/** Same as perfectLimitedInfection(n, sv), but run on executor like limitedInfectionAsync. The 
+	 *  task completes with an UnsupportedOperationException if no subset of CCs has exactly n users.
+	 *  @param n        The number of users that will be infected
+	 *  @param sv       The site version that the users will be infected with
+	 *  @param executor Runs the infection
+	 *  @return the running infection, which completes with the number of users infected
+	 */
+	public InfectionTask perfectLimitedInfectionAsync(int n, int sv, Executor executor) {
+		if (n < 0) {
+			throw new IllegalArgumentException();
+		}
+		return runAsync(sv, executor, task -> planSubset(n, true, task));
+	}
+	
+	/* helper function that runs plan on executor and then, unless the task was cancelled in the 
+	meantime, puts every user whose dense index plan returned on sv */
+	private InfectionTask runAsync(int sv, Executor executor, Function<InfectionTask, int[]> plan) {
+		if (executor == null) {
+			throw new NullPointerException();
+		}
+		InfectionTask task = new InfectionTask();
+		executor.execute(() -> {
+			try {
+				task.checkCancelled();
+				int[] chosen = plan.apply(task);
+				if (!task.startApplying()) {
+					resetTallies();
+					return;
+				}
+				
+				//the chosen CCs were walked while planning, so INFECT only times setting their versions
+				InfectionListener l = listener;
+				long start = l == null ? 0 : System.nanoTime();
+				int numChanged = versions.setAll(chosen, 0, chosen.length, sv);
+				if (l != null) {
+					changedTally += numChanged;
+				}
+				endInfect(l, start);
+				task.finish(chosen.length);
+			} catch (CancellationException e) {
+				//cancel already completed the task
+				resetTallies();
+			} catch (Throwable t) {
+				resetTallies();
+				task.fail(t);
+			}
+		});
+		return task;
+	}
+	
+	/* helper function that finds the best subset of CCs with at most n users in total, or exactly n 
+	if exact is true, and returns the dense indices of their users */
+	private int[] planSubset(int n, boolean exact, InfectionTask task) {
+		if (ids.size() == 0) {
+			return new int[0];
+		}
+		InfectionListener l = listener;
+		long start = l == null ? 0 : System.nanoTime();
+		int numCC = components.numComponents();
+		User[] ccUser = new User[numCC];
+		int[] ccSize = new int[numCC];
+		findSize(ccUser, ccSize);
+		start = endPhase(l, InfectionListener.Phase.FIND_COMPONENTS, start);
+		task.checkCancelled();
+		
+		boolean[] inSol = new boolean[numCC];
+		int maxSum = SubsetSum.findSubsetGrouped(ccSize, numCC, Math.min(n, ids.size()), inSol, false, 
+				l, task);
+		endPhase(l, InfectionListener.Phase.SUBSET_SUM, start);
+		if (exact && maxSum != n) {
 			throw new UnsupportedOperationException();
 		}
 		
-		//else, infect all connected components that exist in the solution for maxSum[numCC-1][n]
-		int m = n; //initial max sum value
-		for (int x = numCC; x > 0; x--) {
-			if (inSol[x][m]) {
-				totalInfection(ccUser[x], sv);
-				m = m - ccSize[x];
+		//the CCs are disjoint, so they can share one stamp
+		int[] chosen = new int[maxSum];
+		int pos = 0;
+		int stamp = nextEpoch();
+		for (int x = 0; x < numCC; x++) {
+			if (inSol[x]) {
+				pos = collect(ids.get(ccUser[x].getUserID()), stamp, chosen, pos, task);
+			}
+		}
+		return chosen;
+	}
+	
+	/* helper function that appends the users of i's CC that aren't stamped with stamp to out from 
+	pos on, using out itself as the queue of a BFS. reports the users to task every so often, and 
+	returns the position after the last one */
+	private int collect(int i, int stamp, int[] out, int pos, InfectionTask task) {
+		visited[i] = stamp;
+		out[pos] = i;
+		int tail = pos + 1;
+		int head = pos;
+		long scanned = 0;
+		for (; head < tail; head++) {
+			if ((head - pos + 1) % InfectionTask.CHECK_INTERVAL == 0) {
+				task.visited(InfectionTask.CHECK_INTERVAL);
+			}
+			scanned += byIndex[out[head]].getNeighbors().size();
+			for (User v : byIndex[out[head]].getNeighbors()) {
+				int j = ids.get(v.getUserID());
+				if (visited[j] != stamp) {
+					visited[j] = stamp;
+					out[tail++] = j;
+				}
+			}
+		}
+		task.visited((head - pos) % InfectionTask.CHECK_INTERVAL);
+		if (listener != null) {
+			visitedTally += tail - pos;
+			scannedTally += scanned;
+		}
+		return tail;
+	}
+	
+	/* adds up the counters of several subset-sum passes, so an operation that runs more than one 
+	still reports each counter once */
+	private static class CounterTotals implements InfectionListener {
+		
+		//totals[c] is the total of counter c so far, and given[c] whether it was given at all
+		private final long[] totals = new long[Counter.values().length];
+		private final boolean[] given = new boolean[totals.length];
+		
+		@Override
+		public void phase(Phase phase, long nanos) {
+		}
+		
+		@Override
+		public void count(Counter counter, long amount) {
+			totals[counter.ordinal()] += amount;
+			given[counter.ordinal()] = true;
+		}
+		
+		//reports the total of every counter that was given to l
+		void reportTo(InfectionListener l) {
+			for (Counter c : Counter.values()) {
+				if (given[c.ordinal()]) {
+					l.count(c, totals[c.ordinal()]);
+				}
 			}
 		}
 	}
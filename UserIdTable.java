@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+public class UserIdTable {
+	
+	/** Interning table that gives every userID a dense int index, in the order the IDs are first 
+	 * seen. It's an open-addressing hash table with linear probing over two flat arrays (one of keys,
+	 * one of indices), so a lookup is a hash and usually a single string comparison, with no boxing 
+	 * and no per-entry objects. The table is kept at most half full. IDs are also stored by index, so
+	 * an index can be turned back into its userID in O(1).
+	 */
+	
+	//hash slots: the key in each slot (null if empty) and the key's index
+	private String[] keys;
+	private int[] values;
+	
+	//IDs by index
+	private String[] byIndex;
+	
+	//number of IDs
+	private int size;
+	
+	//constructor
+	public UserIdTable() {
+		this(16);
+	}
+	
+	//constructor that makes room for about expected IDs
+	public UserIdTable(int expected) {
+		int cap = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) * 2;
+		keys = new String[cap];
+		values = new int[cap];
+		byIndex = new String[Math.max(16, expected)];
+	}
+	
+	//returns number of IDs
+	public int size() {
+		return size;
+	}
+	
+	//returns the index of id, or -1 if it hasn't been interned
+	public int get(String id) {
+		if (id == null) {
+			throw new NullPointerException();
+		}
+		int mask = keys.length - 1;
+		for (int slot = hash(id) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+			if (keys[slot].equals(id)) {
+				return values[slot];
+			}
+		}
+		return -1;
+	}
+	
+	//returns the index of id, giving it the next index if it hasn't been interned yet
+	public int intern(String id) {
+		if (id == null) {
+			throw new NullPointerException();
+		}
+		int mask = keys.length - 1;
+		int slot = hash(id) & mask;
+		for (; keys[slot] != null; slot = (slot + 1) & mask) {
+			if (keys[slot].equals(id)) {
+				return values[slot];
+			}
+		}
+		
+		if (size == byIndex.length) {
+			byIndex = Arrays.copyOf(byIndex, size * 2);
+		}
+		byIndex[size] = id;
+		keys[slot] = id;
+		values[slot] = size;
+		if (++size * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		return size - 1;
+	}
+	
+	//removes the ID with index i, and gives the ID with the last index index i instead
+	public void remove(int i) {
+		String id = getID(i);
+		int mask = keys.length - 1;
+		int hole = hash(id) & mask;
+		while (!keys[hole].equals(id)) {
+			hole = (hole + 1) & mask;
+		}
+		
+		//shift back every later key in the run whose probe path passes through the hole
+		for (int slot = (hole + 1) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+			int home = hash(keys[slot]) & mask;
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				keys[hole] = keys[slot];
+				values[hole] = values[slot];
+				hole = slot;
+			}
+		}
+		keys[hole] = null;
+		
+		int last = --size;
+		if (i != last) {
+			String moved = byIndex[last];
+			int slot = hash(moved) & mask;
+			while (!keys[slot].equals(moved)) {
+				slot = (slot + 1) & mask;
+			}
+			values[slot] = i;
+			byIndex[i] = moved;
+		}
+		byIndex[last] = null;
+	}
+	
+	//returns the ID with index i
+	public String getID(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return byIndex[i];
+	}
+	
+	//helper function that moves every ID into a table with cap slots
+	private void rehash(int cap) {
+		String[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new String[cap];
+		values = new int[cap];
+		int mask = cap - 1;
+		for (int s = 0; s < oldKeys.length; s++) {
+			if (oldKeys[s] != null) {
+				int slot = hash(oldKeys[s]) & mask;
+				while (keys[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[s];
+				values[slot] = oldValues[s];
+			}
+		}
+	}
+	
+	//spreads the string's hash code so that similar IDs don't land in neighboring slots
+	private static int hash(String id) {
+		int h = id.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+}
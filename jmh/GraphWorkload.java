@@ -0,0 +1,73 @@
+public class GraphWorkload implements bench.Workload {
+	
+	/** The benchmarks' Workload, run over the graph shapes in GraphGenerators. Users can only be 
+	 * added to one graph, so addUsers and addEdges get new ones from their prepare method every time.
+	 */
+	
+	private int[] edges;
+	private User[] users;
+	private UserGraph graph;
+	
+	//users for the next addUsers call, and the graph for the next addEdges call
+	private User[] freshUsers;
+	private UserGraph edgeGraph;
+	
+	public void setUp(String shape, int userCount) {
+		if (shape.equals("classrooms")) {
+			edges = GraphGenerators.powerLawClassrooms(userCount, 42);
+		} else if (shape.equals("chain")) {
+			edges = GraphGenerators.chain(userCount);
+		} else if (shape.equals("giant")) {
+			edges = GraphGenerators.giantPlusSingletons(userCount, 0.8, 42);
+		} else if (shape.equals("singletons")) {
+			edges = GraphGenerators.singletons(userCount);
+		} else {
+			throw new IllegalArgumentException();
+		}
+		users = GraphGenerators.newUsers(userCount);
+		graph = GraphGenerators.build(users, edges);
+	}
+	
+	public void prepareUsers() {
+		freshUsers = GraphGenerators.newUsers(users.length);
+	}
+	
+	public Object addUsers() {
+		UserGraph g = new UserGraph();
+		for (User u : freshUsers) {
+			g.addUser(u);
+		}
+		return g;
+	}
+	
+	public void prepareEdges() {
+		prepareUsers();
+		edgeGraph = (UserGraph) addUsers();
+	}
+	
+	public Object addEdges() {
+		for (int k = 0; k < edges.length; k += 2) {
+			edgeGraph.addEdge(freshUsers[edges[k]], freshUsers[edges[k + 1]]);
+		}
+		return edgeGraph;
+	}
+	
+	public int totalInfection(int sv) {
+		graph.totalInfection(users[0], sv);
+		return users[0].getSiteAccessed();
+	}
+	
+	public void limitedInfection(int n, int sv) {
+		graph.limitedInfection(n, sv);
+	}
+	
+	public boolean perfectLimitedInfection(int n, int sv) {
+		try {
+			graph.perfectLimitedInfection(n, sv);
+			return true;
+		} catch (UnsupportedOperationException e) {
+			return false;
+		}
+	}
+	
+}
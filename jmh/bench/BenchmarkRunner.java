@@ -0,0 +1,23 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+	public static void main(String[] args) throws RunnerException {
+		
+		//an optional argument narrows the run down to benchmarks matching that regex
+		String include = args.length > 0 ? args[0] : InfectionBenchmark.class.getSimpleName();
+		
+		//the GC profiler reports allocation rate and GC counts/time for every benchmark
+		Options opt = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(opt).run();
+	}
+
+}
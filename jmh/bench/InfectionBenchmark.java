@@ -0,0 +1,107 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xss512k"})
+public class InfectionBenchmark {
+	
+	/** JMH benchmarks for the infection algorithms and for building a UserGraph, run over each of 
+	 * the graph shapes in GraphGenerators. Run them with BenchmarkRunner, which also attaches the GC
+	 * profiler so allocation rates and GC counts are reported next to the timings. addUser and
+	 * addEdge time only the inserts: the users, and for addEdge the graph holding them, are made
+	 * before every call by the NewUsers and NewGraph states.
+	 */
+	
+	//shape of the generated graph
+	@Param({"classrooms", "chain", "giant", "singletons"})
+	public String shape;
+	
+	//number of users in the graph
+	@Param({"10000", "1000000"})
+	public int userCount;
+	
+	private Workload workload;
+	
+	//site version of the next infection, changed every call so each one actually rewrites users
+	private int sv;
+	
+	@State(Scope.Benchmark)
+	public static class Target {
+		
+		//target number of users for limited and perfect limited infection
+		@Param({"1000", "100000"})
+		public int n;
+		
+	}
+	
+	@State(Scope.Benchmark)
+	public static class NewUsers {
+		
+		@Setup(Level.Invocation)
+		public void setUp(InfectionBenchmark b) {
+			b.workload.prepareUsers();
+		}
+		
+	}
+	
+	@State(Scope.Benchmark)
+	public static class NewGraph {
+		
+		@Setup(Level.Invocation)
+		public void setUp(InfectionBenchmark b) {
+			b.workload.prepareEdges();
+		}
+		
+	}
+	
+	@Setup(Level.Trial)
+	public void setUp() throws ReflectiveOperationException {
+		workload = (Workload) Class.forName("GraphWorkload").getDeclaredConstructor().newInstance();
+		workload.setUp(shape, userCount);
+	}
+	
+	@Benchmark
+	public Object addUser(NewUsers users) {
+		return workload.addUsers();
+	}
+	
+	@Benchmark
+	public Object addEdge(NewGraph graph) {
+		return workload.addEdges();
+	}
+	
+	@Benchmark
+	public int totalInfection() {
+		return workload.totalInfection(++sv);
+	}
+	
+	@Benchmark
+	public int limitedInfection(Target t) {
+		workload.limitedInfection(t.n, ++sv);
+		return sv;
+	}
+	
+	@Benchmark
+	public boolean perfectLimitedInfection(Target t) {
+		return workload.perfectLimitedInfection(t.n, ++sv);
+	}
+	
+}
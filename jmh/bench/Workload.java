@@ -0,0 +1,35 @@
+package bench;
+
+public interface Workload {
+	
+	/** The graph operations the benchmarks time, implemented by GraphWorkload. The graph classes are 
+	 * in the default package, which JMH won't generate benchmarks for and a named package can't 
+	 * import, so the benchmarks load GraphWorkload by name and call it through this interface. Each 
+	 * prepare method does the untimed setup for the call after it.
+	 */
+	
+	//generates the edges and builds the graph of the given shape and number of users
+	void setUp(String shape, int userCount);
+	
+	//makes new users for the next addUsers call
+	void prepareUsers();
+	
+	//adds the prepared users to a new graph and returns it
+	Object addUsers();
+	
+	//makes a new graph holding new users and no edges, for the next addEdges call
+	void prepareEdges();
+	
+	//adds the generated edges to the prepared graph and returns it
+	Object addEdges();
+	
+	//runs totalInfection on the built graph from its first user, returning that user's new version
+	int totalInfection(int sv);
+	
+	//runs limitedInfection on the built graph
+	void limitedInfection(int n, int sv);
+	
+	//runs perfectLimitedInfection on the built graph, returning false if no exact infection exists
+	boolean perfectLimitedInfection(int n, int sv);
+	
+}